@@ -32,6 +32,99 @@ java {
     }
 }
 
+// The primitive stacks (IntStack, LongStack, CharStack, DoubleStack) share the same logic, so they are generated from one
+// template instead of keeping hand-written copies in sync. Each entry maps the class prefix to its element type, the
+// java.util.function consumer used by forEachFromTop (there is no CharConsumer, so chars widen into an IntConsumer) and
+// the wrapper class, whose BYTES is the size of an element in a snapshot.
+val primitiveStackTypes = mapOf(
+    "Int" to listOf("int", "IntConsumer", "Integer"),
+    "Long" to listOf("long", "LongConsumer", "Long"),
+    "Char" to listOf("char", "IntConsumer", "Character"),
+    "Double" to listOf("double", "DoubleConsumer", "Double"),
+)
+
+val primitiveStackTemplate = layout.projectDirectory.file("src/template/java/com/korealm/Pilas/PrimitiveStack.java.template")
+
+val generatePrimitiveStacks by tasks.registering {
+    description = "Generates the primitive stack classes from PrimitiveStack.java.template."
+
+    val outputDir = layout.buildDirectory.dir("generated/sources/primitiveStacks/java/main")
+
+    inputs.file(primitiveStackTemplate)
+    inputs.property("types", primitiveStackTypes)
+    outputs.dir(outputDir)
+
+    doLast {
+        val template = primitiveStackTemplate.asFile.readText()
+        val packageDir = outputDir.get().dir("com/korealm/Pilas").asFile
+        packageDir.mkdirs()
+
+        primitiveStackTypes.forEach { (prefix, spec) ->
+            val source = template
+                .replace("\$Type\$", prefix)
+                .replace("\$type\$", spec[0])
+                .replace("\$Consumer\$", spec[1])
+                .replace("\$Boxed\$", spec[2])
+
+            packageDir.resolve("${prefix}Stack.java").writeText(source)
+        }
+    }
+}
+
+// CharClassifier can use the incubating Vector API. Compiling VectorCharClassifier needs the module; at run time it is
+// optional, and without --add-modules jdk.incubator.vector the classifier quietly keeps to its lookup table.
+// Only compileJava gets it, since javac warns about incubating modules on every task that adds one (there is no -Xlint
+// category to turn that off) and nothing outside main uses the Vector API.
+val vectorModule = "--add-modules=jdk.incubator.vector"
+
+tasks.named<JavaCompile>("compileJava") {
+    options.compilerArgs.add(vectorModule)
+}
+
+sourceSets {
+    main {
+        java.srcDir(generatePrimitiveStacks)
+    }
+
+    // JMH benchmarks live in src/jmh/java, so JMH never ends up on the application classpath.
+    create("jmh") {
+        compileClasspath += main.get().output
+        runtimeClasspath += main.get().output
+    }
+}
+
+configurations["jmhImplementation"].extendsFrom(configurations.implementation.get())
+
+dependencies {
+    "jmhImplementation"(libs.jmh.core)
+    "jmhAnnotationProcessor"(libs.jmh.generator.annprocess)
+}
+
+// Results are written as JSON named after the current commit, so two runs can be diffed across commits.
+// Extra JMH arguments go through -Pjmh, e.g. ./gradlew jmh -Pjmh="PilaCharBenchmark -p size=10,1000"
+val jmhCommit = providers.exec {
+    commandLine("git", "rev-parse", "--short", "HEAD")
+    isIgnoreExitValue = true
+}.standardOutput.asText.map { it.trim().ifEmpty { "local" } }
+
+tasks.register<JavaExec>("jmh") {
+    group = "benchmark"
+    description = "Runs the JMH benchmarks with the GC profiler and writes the results as JSON."
+
+    val results = layout.buildDirectory.file(jmhCommit.map { "reports/jmh/results-$it.json" })
+
+    classpath = sourceSets["jmh"].runtimeClasspath
+    mainClass = "org.openjdk.jmh.Main"
+    args(providers.gradleProperty("jmh").map { it.trim().split(Regex("\\s+")) }.getOrElse(emptyList()))
+    jvmArgs(vectorModule)     // The forked benchmark JVMs inherit it
+    args("-prof", "gc", "-rf", "json")
+    argumentProviders.add(CommandLineArgumentProvider { listOf("-rff", results.get().asFile.absolutePath) })
+
+    doFirst {
+        results.get().asFile.parentFile.mkdirs()
+    }
+}
+
 application {
     // Define the main class for the application.
     mainClass = "org.example.App"
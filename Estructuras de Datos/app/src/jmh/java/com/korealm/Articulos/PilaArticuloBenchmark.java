@@ -0,0 +1,107 @@
+package com.korealm.Articulos;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// Lives in com.korealm.Articulos because the Articulo constructors are package-private.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx6g")
+@State(Scope.Benchmark)
+public class PilaArticuloBenchmark {
+    private static final int DISTINCT_DESCRIPTIONS = 100_000;
+    
+    @Param({"10", "1000", "100000", "1000000", "10000000"})
+    int size;
+    
+    Articulo[] articulos;
+    PilaArticulo llena;
+    Articulo extra;
+    String presente, ausente;
+    
+    @Setup
+    public void setup() {
+        articulos = new Articulo[size];
+        llena = new PilaArticulo();
+        
+        for (int i = 0; i < size; i++) {
+            articulos[i] = new Articulo("Artículo " + (i % DISTINCT_DESCRIPTIONS), 1 + i % 50, 10 + i % 997);
+            llena.push(articulos[i]);
+        }
+        
+        extra = new Articulo("Extra", 3, 25);
+        presente = "ARTÍCULO " + (size / 2 % DISTINCT_DESCRIPTIONS);
+        ausente = "No existe";
+    }
+    
+    // One push and one pop on a stack that already holds size articulos
+    @Benchmark
+    public Articulo pushPop() {
+        llena.push(extra);
+        return llena.pop();
+    }
+    
+    // Builds a stack of size articulos from scratch and empties it, including every resize of the backing array
+    @Benchmark
+    public PilaArticulo fillAndDrain() {
+        PilaArticulo pila = new PilaArticulo();
+        
+        for (Articulo a : articulos) {
+            pila.push(a);
+        }
+        
+        while (!pila.isEmpty()) {
+            pila.pop();
+        }
+        
+        return pila;
+    }
+    
+    @Benchmark
+    public int size() {
+        return llena.size();
+    }
+    
+    @Benchmark
+    public float getStockValue() {
+        return llena.getStockValue();
+    }
+    
+    @Benchmark
+    public Articulo getMostExpensiveItem() {
+        return llena.getMostExpensiveItem();
+    }
+    
+    @Benchmark
+    public boolean doItemExistPresent() {
+        return llena.doItemExist(presente);
+    }
+    
+    @Benchmark
+    public boolean doItemExistAbsent() {
+        return llena.doItemExist(ausente);
+    }
+    
+    // The linear equalsIgnoreCase scan doItemExist used before the description index, as a baseline
+    @Benchmark
+    public boolean doItemExistScan() {
+        for (Articulo a : articulos) {
+            if (a.getDescripcion().equalsIgnoreCase(ausente)) return true;
+        }
+        
+        return false;
+    }
+}
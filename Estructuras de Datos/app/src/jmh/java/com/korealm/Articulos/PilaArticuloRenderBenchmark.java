@@ -0,0 +1,60 @@
+package com.korealm.Articulos;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.TimeUnit;
+
+// The three ways of writing a PilaArticulo out (toString, writeTo a channel and snapshot) over the same stacks.
+// Lives in com.korealm.Articulos because the Articulo constructors are package-private.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx6g")
+@State(Scope.Benchmark)
+public class PilaArticuloRenderBenchmark {
+    @Param({"10", "1000", "100000", "1000000"})
+    int size;
+    
+    PilaArticulo pila;
+    WritableByteChannel sumidero = Channels.newChannel(OutputStream.nullOutputStream());
+    
+    @Setup
+    public void setup() {
+        pila = new PilaArticulo();
+        
+        for (int i = 0; i < size; i++) {
+            pila.push(new Articulo("Artículo " + i, 1 + i % 50, 10 + i % 997));
+        }
+    }
+    
+    @Benchmark
+    public String toStringPila() {
+        return pila.toString();
+    }
+    
+    // Streams the same text into a channel that drops it, so only the formatting and the UTF-8 encoding are measured
+    @Benchmark
+    public void writeToChannel() throws IOException {
+        pila.writeTo(sumidero);
+    }
+    
+    @Benchmark
+    public void snapshot() throws IOException {
+        pila.snapshot(OutputStream.nullOutputStream());
+    }
+}
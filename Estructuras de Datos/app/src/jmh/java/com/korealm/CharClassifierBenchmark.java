@@ -0,0 +1,109 @@
+package com.korealm;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+// Each benchmark counts letters, digits and spaces over the whole text, so all of them do the same work.
+// The jmh task starts the JVMs with jdk.incubator.vector, so classify() takes the vector path; bulkScalar is the table loop.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CharClassifierBenchmark {
+    private static final String ASCII = "The quick brown fox jumps over the lazy dog, 42 times in 2024! ";
+    private static final String SPANISH = "El pingüino Ñandú comió 3 ñoquis a las 10:45, ¿verdad? ¡Sí, señor! ";
+
+    @Param({"ascii", "spanish"})
+    String text;
+
+    @Param({"1000", "1000000"})
+    int size;
+
+    char[] chars;
+    long[] letters, digits, spaces;
+
+    @Setup
+    public void setup() {
+        String frase = text.equals("ascii") ? ASCII : SPANISH;
+
+        chars = new char[size];
+        for (int i = 0; i < size; i++) {
+            chars[i] = frase.charAt(i % frase.length());
+        }
+
+        int words = (size + 63) >>> 6;
+        letters = new long[words];
+        digits = new long[words];
+        spaces = new long[words];
+    }
+
+    @Benchmark
+    public int jdkPredicates() {
+        int count = 0;
+
+        for (char c : chars) {
+            if (Character.isLetter(c)) count += 1;
+            else if (Character.isDigit(c)) count += 1 << 10;
+            else if (Character.isWhitespace(c)) count += 1 << 20;
+        }
+
+        return count;
+    }
+
+    @Benchmark
+    public int table() {
+        int count = 0;
+
+        for (char c : chars) {
+            switch (CharClassifier.category(c)) {
+                case CharClassifier.LETTER -> count += 1;
+                case CharClassifier.DIGIT -> count += 1 << 10;
+                case CharClassifier.SPACE -> count += 1 << 20;
+                default -> { }
+            }
+        }
+
+        return count;
+    }
+
+    @Benchmark
+    public int bulkScalar() {
+        int words = (size + 63) >>> 6;
+        Arrays.fill(letters, 0, words, 0);
+        Arrays.fill(digits, 0, words, 0);
+        Arrays.fill(spaces, 0, words, 0);
+
+        CharClassifier.classifyScalar(chars, 0, size, letters, digits, spaces, 0);
+        return count();
+    }
+
+    @Benchmark
+    public int bulk() {
+        CharClassifier.classify(chars, 0, size, letters, digits, spaces);
+        return count();
+    }
+
+    private int count() {
+        int count = 0;
+
+        for (int i = 0; i < letters.length; i++) {
+            count += Long.bitCount(letters[i]) + (Long.bitCount(digits[i]) << 10) + (Long.bitCount(spaces[i]) << 20);
+        }
+
+        return count;
+    }
+}
@@ -0,0 +1,96 @@
+package com.korealm.Pilas;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Push/pop throughput of the growable stack, with ArrayDeque as the JDK baseline.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class ArrayStackBenchmark {
+    @Param({"10000000"})
+    int size;
+    
+    Integer[] valores;
+    
+    @Setup
+    public void setup() {
+        valores = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            valores[i] = i;     // Boxed once here, so the benchmarks measure the stacks and not Integer.valueOf
+        }
+    }
+    
+    @Benchmark
+    public int arrayStack() {
+        ArrayStack<Integer> pila = new ArrayStack<>();
+        
+        for (Integer v : valores) {
+            pila.push(v);
+        }
+        
+        int suma = 0;
+        while (!pila.isEmpty()) {
+            suma += pila.pop();
+        }
+        
+        return suma;
+    }
+    
+    @Benchmark
+    public int arrayStackShrinking() {
+        ArrayStack<Integer> pila = new ArrayStack<>(5, true);
+        
+        for (Integer v : valores) {
+            pila.push(v);
+        }
+        
+        int suma = 0;
+        while (!pila.isEmpty()) {
+            suma += pila.pop();
+        }
+        
+        return suma;
+    }
+    
+    @Benchmark
+    public int arrayStackBulk() {
+        ArrayStack<Integer> pila = new ArrayStack<>();
+        pila.pushAll(valores);
+        
+        List<Integer> sacados = pila.popN(size);
+        return sacados.size();
+    }
+    
+    @Benchmark
+    public int arrayDeque() {
+        ArrayDeque<Integer> pila = new ArrayDeque<>();
+        
+        for (Integer v : valores) {
+            pila.push(v);
+        }
+        
+        int suma = 0;
+        while (!pila.isEmpty()) {
+            suma += pila.pop();
+        }
+        
+        return suma;
+    }
+}
@@ -0,0 +1,127 @@
+package com.korealm.Pilas;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Contention benchmark: every thread pushes and pops on one shared stack.
+ * JMH can't take the thread count from a @Param, so there is one pushPop method per count (1 to 64 threads), and a single
+ *     ./gradlew jmh -Pjmh="ConcurrentPilaBenchmark"
+ * measures every implementation at every count into the same results file. Passing -t overrides all of them.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ConcurrentPilaBenchmark {
+    private interface Pila {
+        void push(Integer value);
+        Integer pop();
+    }
+    
+    @Param({"treiber", "elimination", "synchronized", "deque"})
+    String impl;
+    
+    Pila pila;
+    
+    @Setup
+    public void setup() {
+        pila = switch (impl) {
+            case "treiber" -> {
+                ConcurrentPila<Integer> p = new ConcurrentPila<>();
+                yield new Pila() {
+                    public void push(Integer value) { p.push(value); }
+                    public Integer pop() { return p.pop(); }
+                };
+            }
+            case "elimination" -> {
+                ConcurrentPila<Integer> p = new ConcurrentPila<>(Runtime.getRuntime().availableProcessors() / 2 + 1);
+                yield new Pila() {
+                    public void push(Integer value) { p.push(value); }
+                    public Integer pop() { return p.pop(); }
+                };
+            }
+            case "synchronized" -> {
+                ArrayStack<Integer> p = new ArrayStack<>();
+                yield new Pila() {
+                    public synchronized void push(Integer value) { p.push(value); }
+                    public synchronized Integer pop() { return p.pop(); }
+                };
+            }
+            case "deque" -> {
+                ConcurrentLinkedDeque<Integer> p = new ConcurrentLinkedDeque<>();
+                yield new Pila() {
+                    public void push(Integer value) { p.push(value); }
+                    public Integer pop() { return p.pollFirst(); }
+                };
+            }
+            default -> throw new IllegalArgumentException("Implementación desconocida: " + impl);
+        };
+        
+        for (int i = 0; i < 1000; i++) {
+            pila.push(i);   // Start with some elements, so pops rarely see an empty stack
+        }
+    }
+    
+    private Integer pushPop() {
+        pila.push(7);
+        return pila.pop();
+    }
+    
+    @Benchmark
+    @Threads(1)
+    public Integer pushPop01() {
+        return pushPop();
+    }
+    
+    @Benchmark
+    @Threads(2)
+    public Integer pushPop02() {
+        return pushPop();
+    }
+    
+    @Benchmark
+    @Threads(4)
+    public Integer pushPop04() {
+        return pushPop();
+    }
+    
+    @Benchmark
+    @Threads(8)
+    public Integer pushPop08() {
+        return pushPop();
+    }
+    
+    @Benchmark
+    @Threads(16)
+    public Integer pushPop16() {
+        return pushPop();
+    }
+    
+    @Benchmark
+    @Threads(32)
+    public Integer pushPop32() {
+        return pushPop();
+    }
+    
+    @Benchmark
+    @Threads(64)
+    public Integer pushPop64() {
+        return pushPop();
+    }
+}
@@ -0,0 +1,85 @@
+package com.korealm.Practica3U2;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx6g")
+@State(Scope.Benchmark)
+public class PilaLibrosBenchmark {
+    @Param({"10", "1000", "100000", "1000000", "10000000"})
+    int size;
+    
+    Libro[] sueltos;    // A book can only be in one PilaLibros, so fillAndDrain gets its own books
+    PilaLibros llena;
+    Libro extra;
+    
+    @Setup
+    public void setup() {
+        sueltos = new Libro[size];
+        llena = new PilaLibros();
+        
+        for (int i = 0; i < size; i++) {
+            sueltos[i] = new Libro("Libro " + i, "Autor " + (i % 100), 100 + i % 400);
+            llena.push(new Libro("Libro " + i, "Autor " + (i % 100), 100 + i % 400));
+        }
+        
+        extra = new Libro("Extra", "Autor", 250);
+    }
+    
+    @Benchmark
+    public Libro pushPop() {
+        llena.push(extra);
+        return llena.pop();
+    }
+    
+    @Benchmark
+    public PilaLibros fillAndDrain() {
+        PilaLibros pila = new PilaLibros();
+        
+        for (Libro libro : sueltos) {
+            pila.push(libro);
+        }
+        
+        while (!pila.isEmpty()) {
+            pila.pop();
+        }
+        
+        return pila;
+    }
+    
+    @Benchmark
+    public Libro peek() {
+        return llena.peek();
+    }
+    
+    @Benchmark
+    public int size() {
+        return llena.size();
+    }
+    
+    @Benchmark
+    public float raiseBooksPrices() {
+        llena.raiseBooksPrices(1.0001f);
+        return llena.getTotalPrice();
+    }
+    
+    @Benchmark
+    public float getTotalPrice() {
+        return llena.getTotalPrice();
+    }
+}
@@ -0,0 +1,43 @@
+package com.korealm.Practica3U2;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// PilaLibros.toString on its own, up to 100000 books: rendering 10 million would only measure the allocation of the String.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx6g")
+@State(Scope.Benchmark)
+public class PilaLibrosRenderBenchmark {
+    @Param({"10", "1000", "100000"})
+    int size;
+    
+    PilaLibros pila;
+    
+    @Setup
+    public void setup() {
+        pila = new PilaLibros();
+        
+        for (int i = 0; i < size; i++) {
+            pila.push(new Libro("Libro " + i, "Autor " + (i % 100), 100 + i % 400));
+        }
+    }
+    
+    @Benchmark
+    public String toStringPila() {
+        return pila.toString();
+    }
+}
@@ -0,0 +1,89 @@
+package com.korealm.U2Practica4;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.LinkedHashSet;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+// Lives in com.korealm.U2Practica4 because ClasificadorCaracteres is package-private.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class ClasificadorCaracteresBenchmark {
+    private static final String FRASE = "El pingüino comió 3 ñoquis a las 10:45, ¿verdad? ¡Sí! ";
+
+    @Param({"80", "10000", "1000000"})
+    int size;
+
+    String texto;
+
+    @Setup
+    public void setup() {
+        StringBuilder sb = new StringBuilder(size);
+        while (sb.length() < size) {
+            sb.append(FRASE);
+        }
+        texto = sb.substring(0, size);
+    }
+
+    // The pipeline readString used before: regex, boxed chars, a LinkedHashSet and a joined String
+    @Benchmark
+    public PilaChar[] legacy() {
+        final String raw = texto
+                .replaceAll("\\s", "")
+                .chars().mapToObj(c -> (char) c)
+                .collect(Collectors.toCollection(LinkedHashSet::new)).stream()
+                .map(String::valueOf)
+                .collect(Collectors.joining());
+
+        PilaChar[] stack = new PilaChar[3];
+        for (int i = 0; i < stack.length; i++) {
+            stack[i] = new PilaChar(raw.length());
+        }
+
+        for (char c : raw.toCharArray()) {
+            if (Character.isLetter(c)) {
+                stack[0].push(c);
+            } else if (Character.isDigit(c)) {
+                stack[1].push(c);
+            } else {
+                stack[2].push(c);
+            }
+        }
+
+        return stack;
+    }
+
+    @Benchmark
+    public ClasificadorCaracteres clasificador() {
+        ClasificadorCaracteres clasificador = new ClasificadorCaracteres();
+        clasificador.clasificar(texto);
+
+        return clasificador;
+    }
+
+    // Same text through the chunked Reader path used for files and stdin
+    @Benchmark
+    public ClasificadorCaracteres clasificadorStreaming() throws IOException {
+        ClasificadorCaracteres clasificador = new ClasificadorCaracteres();
+        clasificador.clasificar(new StringReader(texto));
+
+        return clasificador;
+    }
+}
@@ -0,0 +1,82 @@
+package com.korealm.U2Practica4;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class PilaCharBenchmark {
+    @Param({"10", "1000", "100000", "1000000", "10000000"})
+    int size;
+    
+    char[] texto;
+    char[] destino;
+    PilaChar llena;
+    
+    @Setup
+    public void setup() {
+        texto = new char[size];
+        for (int i = 0; i < size; i++) {
+            texto[i] = (char) ('a' + i % 26);
+        }
+        
+        destino = new char[size];
+        llena = new PilaChar();
+        llena.pushAll(texto, 0, size);
+    }
+    
+    @Benchmark
+    public char pushPop() {
+        llena.push('z');
+        return llena.pop();
+    }
+    
+    @Benchmark
+    public PilaChar fillAndDrain() {
+        PilaChar pila = new PilaChar();
+        
+        for (char c : texto) {
+            pila.push(c);
+        }
+        
+        while (!pila.isEmpty()) {
+            pila.pop();
+        }
+        
+        return pila;
+    }
+    
+    // Same work as fillAndDrain through the bulk operations
+    @Benchmark
+    public int pushAllDrainTo() {
+        PilaChar pila = new PilaChar();
+        pila.pushAll(texto, 0, texto.length);
+        
+        return pila.drainTo(destino, 0);
+    }
+    
+    @Benchmark
+    public char peek() {
+        return llena.peek();
+    }
+    
+    @Benchmark
+    public int size() {
+        return llena.size();
+    }
+}
@@ -0,0 +1,43 @@
+package com.korealm.U2Practica4;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// toString of PilaChar. It has its own sizes instead of a nested state in PilaCharBenchmark, so JMH doesn't run it for every size of that class too.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class PilaCharRenderBenchmark {
+    @Param({"10", "1000", "100000", "1000000"})
+    int size;
+    
+    PilaChar pila;
+    
+    @Setup
+    public void setup() {
+        pila = new PilaChar();
+        
+        for (int i = 0; i < size; i++) {
+            pila.push((char) ('a' + i % 26));
+        }
+    }
+    
+    @Benchmark
+    public String toStringPila() {
+        return pila.toString();
+    }
+}
@@ -0,0 +1,69 @@
+package com.korealm.U2Practica5;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class DoblePilaIntBenchmark {
+    @Param({"10", "1000", "100000", "1000000", "10000000"})
+    int size;
+    
+    DoblePilaInt llena;
+    
+    @Setup
+    public void setup() {
+        llena = new DoblePilaInt(size + 2);     // Leave room for pushPop on each side
+        
+        for (int i = 0; i < size; i++) {
+            if (i % 2 == 0) llena.pushPila1(i); else llena.pushPila2(i);
+        }
+    }
+    
+    @Benchmark
+    public int pushPopPila1() {
+        llena.pushPila1(42);
+        return llena.popPila1();
+    }
+    
+    @Benchmark
+    public int pushPopPila2() {
+        llena.pushPila2(43);
+        return llena.popPila2();
+    }
+    
+    // Routes size numbers by parity into a growing DoblePilaInt and empties both stacks
+    @Benchmark
+    public DoblePilaInt fillAndDrain() {
+        DoblePilaInt pila = new DoblePilaInt(16, true);
+        
+        for (int i = 0; i < size; i++) {
+            if (i % 2 == 0) pila.pushPila1(i); else pila.pushPila2(i);
+        }
+        
+        while (!pila.isEmptyPila1()) pila.popPila1();
+        while (!pila.isEmptyPila2()) pila.popPila2();
+        
+        return pila;
+    }
+    
+    @Benchmark
+    public int size() {
+        return llena.sizePila1() + llena.sizePila2();
+    }
+}
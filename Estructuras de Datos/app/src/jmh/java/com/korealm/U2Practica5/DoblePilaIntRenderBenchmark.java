@@ -0,0 +1,43 @@
+package com.korealm.U2Practica5;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// toStringPila1/toStringPila2, apart from DoblePilaIntBenchmark so their sizes aren't multiplied by the sizes of that class.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class DoblePilaIntRenderBenchmark {
+    @Param({"10", "1000", "100000", "1000000"})
+    int size;
+    
+    DoblePilaInt pila;
+    
+    @Setup
+    public void setup() {
+        pila = new DoblePilaInt(size);
+        
+        for (int i = 0; i < size; i++) {
+            if (i % 2 == 0) pila.pushPila1(i); else pila.pushPila2(i);
+        }
+    }
+    
+    @Benchmark
+    public int toStringPilas() {
+        return pila.toStringPila1().length() + pila.toStringPila2().length();
+    }
+}
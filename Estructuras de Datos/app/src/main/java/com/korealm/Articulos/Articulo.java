@@ -1,9 +1,16 @@
 package com.korealm.Articulos;
 
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
 public class Articulo {
     private String descripcion;
     private int cantidad;
     private float precio;
+    private List<WeakReference<ArticuloObserver>> observadores; // Stacks holding this articulo. Created on the first push to keep plain articulos light
     
     Articulo(){
         descripcion = "";
@@ -30,15 +37,66 @@ public class Articulo {
     }
     
     public void setDescripcion(String descripcion) {
+        String descripcionAnterior = this.descripcion;
         this.descripcion = descripcion;
+        
+        notificarCambio(descripcionAnterior, cantidad, precio);
     }
     
     public void setCantidad(int cantidad) {
+        int cantidadAnterior = this.cantidad;
         this.cantidad = cantidad;
+        
+        notificarCambio(descripcion, cantidadAnterior, precio);
     }
     
     public void setPrecio(float precio) {
+        float precioAnterior = this.precio;
         this.precio = precio;
+        
+        notificarCambio(descripcion, cantidad, precioAnterior);
+    }
+    
+    // An articulo pushed twice on the same stack is registered twice, so every copy gets its own notification.
+    // The observers are only weakly referenced: a stack that is dropped without popping its articulos stops being notified
+    // once it is collected, and its entries are cleaned up on the next change or registration.
+    void agregarObservador(ArticuloObserver observador) {
+        if (observadores == null) observadores = new ArrayList<>(1);
+        
+        observadores.removeIf((referencia) -> referencia.get() == null);
+        observadores.add(new WeakReference<>(observador));
+    }
+    
+    void quitarObservador(ArticuloObserver observador) {
+        if (observadores == null) return;
+        
+        for (Iterator<WeakReference<ArticuloObserver>> it = observadores.iterator(); it.hasNext(); ) {
+            if (it.next().get() == observador) {
+                it.remove();
+                return;
+            }
+        }
+    }
+    
+    private void notificarCambio(String descripcionAnterior, int cantidadAnterior, float precioAnterior) {
+        if (observadores == null) return;
+        
+        for (Iterator<WeakReference<ArticuloObserver>> it = observadores.iterator(); it.hasNext(); ) {
+            ArticuloObserver observador = it.next().get();
+            
+            if (observador == null) {
+                it.remove();
+            } else {
+                observador.articuloCambio(this, descripcionAnterior, cantidadAnterior, precioAnterior);
+            }
+        }
+    }
+    
+    // Same text as toString(), written piece by piece so the stacks can stream their articulos
+    public void writeTo(Appendable out) throws IOException {
+        out.append("Artículo: ").append(descripcion)
+                .append("\nCantidad: ").append(String.valueOf(cantidad))
+                .append("\nPrecio: ").append(String.valueOf(precio));
     }
     
     @Override
@@ -0,0 +1,7 @@
+package com.korealm.Articulos;
+
+// Hook used by the stacks that keep aggregates of their articulos, so they can stay consistent when an articulo changes after being pushed.
+@FunctionalInterface
+interface ArticuloObserver {
+    void articuloCambio(Articulo articulo, String descripcionAnterior, int cantidadAnterior, float precioAnterior);
+}
@@ -0,0 +1,80 @@
+package com.korealm.Articulos;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/*
+ * Multiset of descriptions that ignores case, so existence checks are O(1) on average instead of a linear equalsIgnoreCase scan.
+ * Keys compare with String.equalsIgnoreCase itself, so the index agrees with it on whatever JDK runs the code (16+ folds whole
+ * code points, older versions fold chars). The hash folds code points with toLowerCase(toUpperCase(cp)), which equal strings
+ * always share; when the JDK folds chars it can only add collisions, never split equal keys.
+ * Lookups reuse one probe key and do not allocate. Not thread-safe, like the stacks that own it.
+ */
+class IndiceDescripciones {
+    private final Map<Clave, Integer> conteos = new HashMap<>();
+    private final Clave sonda = new Clave();
+    
+    void agregar(String descripcion) {
+        if (descripcion == null) return;
+        
+        conteos.merge(new Clave(descripcion), 1, Integer::sum);     // the map keeps this key, so it can't be the probe
+    }
+    
+    void quitar(String descripcion) {
+        if (descripcion == null) return;
+        
+        conteos.computeIfPresent(sonda.apuntar(descripcion), (k, n) -> (n == 1) ? null : n - 1); // null drops the key
+        sonda.apuntar(null);
+    }
+    
+    int contar(String descripcion) {
+        if (descripcion == null) return 0;
+        
+        int n = conteos.getOrDefault(sonda.apuntar(descripcion), 0);
+        sonda.apuntar(null);
+        
+        return n;
+    }
+    
+    private static int hashPlegado(String descripcion) {
+        int h = 0;
+        
+        for (int i = 0; i < descripcion.length(); ) {
+            int cp = descripcion.codePointAt(i);
+            h = 31 * h + Character.toLowerCase(Character.toUpperCase(cp));
+            i += Character.charCount(cp);
+        }
+        
+        return h;
+    }
+    
+    // Stored keys are never re-pointed; only the probe is, and it never goes into the map
+    private static final class Clave {
+        private String descripcion;
+        private int hash;
+        
+        Clave() {
+        }
+        
+        Clave(String descripcion) {
+            apuntar(descripcion);
+        }
+        
+        Clave apuntar(String descripcion) {
+            this.descripcion = descripcion;
+            this.hash = (descripcion == null) ? 0 : hashPlegado(descripcion);
+            
+            return this;
+        }
+        
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+        
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Clave otra && hash == otra.hash && descripcion.equalsIgnoreCase(otra.descripcion);
+        }
+    }
+}
@@ -0,0 +1,286 @@
+package com.korealm.Articulos;
+
+import com.korealm.Pilas.ChannelAppendable;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * PilaArticulo stored in a file, so the inventory survives restarts and the articulos don't live on the Java heap.
+ *
+ * The file has a 64 byte header and then fixed-size records, one per articulo, from the bottom of the stack to the top:
+ *
+ *     header:  int MAGIC | int VERSION | int RECORD_BYTES | int (unused) | long size
+ *     record:  short descripcion length | DESCRIPCION_BYTES of UTF-8 | int cantidad | float precio
+ *              | double stock value up to this record | int slot of the most expensive articulo up to this record
+ *
+ * Because every record carries the running stock value and the running max for the stack below it, getStockValue() and
+ * getMostExpensiveItem() only read the top record, and reopening the file is O(1): nothing has to be rebuilt.
+ *
+ * The size in the header is the commit point. A push writes its record past the top and only then bumps the size, and a pop
+ * only lowers it, so a crash in between leaves the stack as it was before the operation. The mapped pages live in the OS page
+ * cache, so this holds if the process dies; to also survive a power loss, open the stack with sincronizar = true so every
+ * record and header update is forced to disk in that order (much slower).
+ *
+ * The file is mapped in segments of SEGMENT_RECORDS records, which are added as the stack grows.
+ * push() rejects descripciones longer than DESCRIPCION_BYTES in UTF-8 (cutting them would make doItemExist miss the full
+ * descripcion), and the stack stores copies: changing an Articulo after pushing it does not change the file.
+ */
+public class MappedPilaArticulo implements Closeable {
+    private static final int MAGIC = 0x50415254;    // "PART"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 64;
+    private static final int SIZE_OFFSET = 16;
+
+    static final int DESCRIPCION_BYTES = 62;
+    private static final int CANTIDAD_OFFSET = 2 + DESCRIPCION_BYTES;
+    private static final int PRECIO_OFFSET = CANTIDAD_OFFSET + 4;
+    private static final int ACUMULADO_OFFSET = PRECIO_OFFSET + 4;
+    private static final int MAXIMO_OFFSET = ACUMULADO_OFFSET + 8;
+    private static final int RECORD_BYTES = 88;     // MAXIMO_OFFSET + 4, padded to keep the doubles 8-byte aligned
+
+    private static final int SEGMENT_RECORDS = 1 << 16;
+
+    private final FileChannel canal;
+    private final MappedByteBuffer header;
+    private final List<MappedByteBuffer> segmentos = new ArrayList<>();
+    private final boolean sincronizar;
+    private int size;
+    private IndiceDescripciones descripciones;      // Built on the first lookup, then kept up to date
+
+    public MappedPilaArticulo(Path archivo) throws IOException {
+        this(archivo, false);
+    }
+
+    public MappedPilaArticulo(Path archivo, boolean sincronizar) throws IOException {
+        this.sincronizar = sincronizar;
+        canal = FileChannel.open(archivo, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        try {
+            boolean nuevo = canal.size() == 0;
+            if (!nuevo && canal.size() < HEADER_BYTES) throw new IOException("El archivo " + archivo + " no es una pila de artículos.");
+
+            header = canal.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES);
+
+            if (nuevo) {
+                header.putInt(0, MAGIC).putInt(4, VERSION).putInt(8, RECORD_BYTES).putLong(SIZE_OFFSET, 0);
+                if (sincronizar) header.force();
+            } else if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION || header.getInt(8) != RECORD_BYTES) {
+                throw new IOException("El archivo " + archivo + " no es una pila de artículos o es de otra versión.");
+            }
+
+            long guardados = header.getLong(SIZE_OFFSET);
+            if (guardados < 0 || guardados > Integer.MAX_VALUE || HEADER_BYTES + guardados * RECORD_BYTES > canal.size()) {
+                throw new IOException("El archivo " + archivo + " está dañado: dice tener " + guardados + " artículos.");
+            }
+            size = (int) guardados;
+        } catch (IOException | RuntimeException e) {
+            canal.close();
+            throw e;
+        }
+    }
+
+    // inserta un elemento en la pila; la descripción debe caber en DESCRIPCION_BYTES de UTF-8
+    public void push(Articulo nuevo) {
+        if (size == Integer.MAX_VALUE) throw new IllegalStateException("La pila de artículos está llena");
+
+        byte[] descripcion = codificar(nuevo.getDescripcion());
+
+        int casilla = size;
+        MappedByteBuffer segmento = segmento(casilla);
+        int base = posicion(casilla);
+
+        segmento.putShort(base, (short) descripcion.length);
+        segmento.put(base + 2, descripcion);
+        segmento.putInt(base + CANTIDAD_OFFSET, nuevo.getCantidad());
+        segmento.putFloat(base + PRECIO_OFFSET, nuevo.getPrecio());
+
+        // Running aggregates for the stack up to this record
+        double acumulado = (double) nuevo.getPrecio() * nuevo.getCantidad();
+        int maximo = casilla;
+        if (casilla > 0) {
+            acumulado += acumulado(casilla - 1);
+
+            int maximoAnterior = maximo(casilla - 1);
+            if (precio(maximoAnterior) >= nuevo.getPrecio()) maximo = maximoAnterior;   // en un empate gana el más antiguo
+        }
+
+        segmento.putDouble(base + ACUMULADO_OFFSET, acumulado);
+        segmento.putInt(base + MAXIMO_OFFSET, maximo);
+
+        if (sincronizar) segmento.force(base, RECORD_BYTES);
+        cambiarTamano(casilla + 1);
+
+        if (descripciones != null) descripciones.agregar(new String(descripcion, StandardCharsets.UTF_8));
+    }
+
+    // elimina un elemento de la pila, devuelve null si está vacía
+    public Articulo pop() {
+        if (isEmpty()) return null;
+
+        Articulo borrado = leer(size - 1);
+        cambiarTamano(size - 1);
+
+        if (descripciones != null) descripciones.quitar(borrado.getDescripcion());
+
+        return borrado;
+    }
+
+    public Articulo peek() {
+        return isEmpty() ? null : leer(size - 1);
+    }
+
+    public boolean isEmpty() {
+        return (size == 0);
+    }
+
+    public boolean isFull() {
+        return false;   // el archivo crece por segmentos
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getTope() {
+        return size - 1;
+    }
+
+    // O(1): lee el valor acumulado del registro del tope
+    public float getStockValue() {
+        return isEmpty() ? 0 : (float) acumulado(size - 1);
+    }
+
+    // O(1): el registro del tope sabe en qué casilla está el máximo de la pila
+    public Articulo getMostExpensiveItem() {
+        return isEmpty() ? null : leer(maximo(size - 1));
+    }
+
+    // La primera búsqueda recorre el archivo para armar el índice; las siguientes son O(1) en promedio
+    public boolean doItemExist(String description) {
+        return countByDescription(description) > 0;
+    }
+
+    public int countByDescription(String description) {
+        if (descripciones == null) {
+            descripciones = new IndiceDescripciones();
+            for (int i = 0; i < size; i++) {
+                descripciones.agregar(descripcion(i));
+            }
+        }
+
+        return descripciones.contar(description);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!sincronizar) {     // On a clean shutdown leave everything on disk, records first and then the header
+            for (MappedByteBuffer segmento : segmentos) {
+                segmento.force();
+            }
+            header.force();
+        }
+
+        canal.close();
+    }
+
+    // Escribe la pila del tope a la casilla 0, un artículo por línea, con el mismo formato que toString()
+    public void writeTo(Appendable out) throws IOException {
+        for (int i = size - 1; i >= 0; i--) {
+            leer(i).writeTo(out);
+            out.append('\n');
+        }
+    }
+
+    public void writeTo(WritableByteChannel channel) throws IOException {
+        ChannelAppendable out = new ChannelAppendable(channel);
+        writeTo(out);
+        out.flush();
+    }
+
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+
+        try {
+            writeTo(sb);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // un StringBuilder nunca lanza IOException
+        }
+
+        return sb.toString();
+    }
+
+    private void cambiarTamano(int nuevoTamano) {
+        header.putLong(SIZE_OFFSET, nuevoTamano);
+        if (sincronizar) header.force();
+
+        size = nuevoTamano;
+    }
+
+    private Articulo leer(int casilla) {
+        ByteBuffer segmento = segmento(casilla);
+        int base = posicion(casilla);
+
+        return new Articulo(descripcion(casilla), segmento.getInt(base + CANTIDAD_OFFSET), segmento.getFloat(base + PRECIO_OFFSET));
+    }
+
+    private String descripcion(int casilla) {
+        ByteBuffer segmento = segmento(casilla);
+        int base = posicion(casilla);
+
+        byte[] bytes = new byte[segmento.getShort(base)];
+        segmento.get(base + 2, bytes);
+
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private float precio(int casilla) {
+        return segmento(casilla).getFloat(posicion(casilla) + PRECIO_OFFSET);
+    }
+
+    private double acumulado(int casilla) {
+        return segmento(casilla).getDouble(posicion(casilla) + ACUMULADO_OFFSET);
+    }
+
+    private int maximo(int casilla) {
+        return segmento(casilla).getInt(posicion(casilla) + MAXIMO_OFFSET);
+    }
+
+    private static int posicion(int casilla) {
+        return (casilla % SEGMENT_RECORDS) * RECORD_BYTES;
+    }
+
+    // Maps the segments up to the one holding the slot. Mapping past the end of the file grows it.
+    private MappedByteBuffer segmento(int casilla) {
+        int indice = casilla / SEGMENT_RECORDS;
+
+        try {
+            while (segmentos.size() <= indice) {
+                long inicio = HEADER_BYTES + (long) segmentos.size() * SEGMENT_RECORDS * RECORD_BYTES;
+                segmentos.add(canal.map(FileChannel.MapMode.READ_WRITE, inicio, (long) SEGMENT_RECORDS * RECORD_BYTES));
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("No fue posible mapear el archivo de la pila de artículos", e);
+        }
+
+        return segmentos.get(indice);
+    }
+
+    // UTF-8 bytes of the descripcion. Longer ones are rejected before anything is written.
+    private static byte[] codificar(String descripcion) {
+        byte[] bytes = (descripcion == null ? "" : descripcion).getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > DESCRIPCION_BYTES) throw new IllegalArgumentException("La descripción ocupa " + bytes.length + " bytes y el máximo es " + DESCRIPCION_BYTES + ": " + descripcion);
+
+        return bytes;
+    }
+}
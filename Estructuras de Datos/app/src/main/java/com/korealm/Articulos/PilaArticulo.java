@@ -1,104 +1,258 @@
 package com.korealm.Articulos;
 
+import com.korealm.Pilas.ArrayStack;
+import com.korealm.Pilas.ChannelAppendable;
+import com.korealm.Pilas.IntStack;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.WritableByteChannel;
 import java.util.Arrays;
-import java.util.Comparator;
-import java.util.Objects;
 
 public class PilaArticulo {
+    private static final int SNAPSHOT_MAGIC = 0x50415231;    // "PAR1", identifica los respaldos de snapshot()
+    private static final int MIN_SNAPSHOT_BYTES = 2 + 4 + 4;     // lo menos que ocupa un artículo: descripción vacía, cantidad y precio
+    
     // atributos
-    private Articulo p[ ];     // vector para guardar datos de la pila
-    private int tope;    // apuntador al último elemento de la pila
+    private final ArrayStack<Articulo> p;     // pila genérica que crece cuando se llena, en lugar de perder datos
+    private double valorInventario;     // suma de precio * cantidad de todos los artículos de la pila
+    private final IntStack maximos;     // casillas de los máximos de precio, del fondo al tope (pila monótona)
+    private boolean maximosInvalidos;     // un cambio de precio alteró los máximos, hay que reconstruirlos
+    private final IndiceDescripciones descripciones = new IndiceDescripciones();     // conteo de descripciones sin importar mayúsculas
+    private Casilla[] casillas = new Casilla[0];     // el observador de cada casilla; se reutilizan, así un push no crea uno nuevo cada vez
     
-    // 1er. constructor, genera una pila de 5 casillas
+    // 1er. constructor, genera una pila con 5 casillas iniciales
     public PilaArticulo ( ) {
-        p = new Articulo [5];     // se crea el vector (pila)
-        tope  =  -1;          // pila está vacía, por lo que se inicializa el tope
+        this(5);
     }
     
-    // 2do. constructor, genera una pila de tamaño n
+    // 2do. constructor, genera una pila con n casillas iniciales
     public PilaArticulo (int n) {
-        p=new Articulo [n];    // se crea el vector (pila) de n casillas
-        tope =  -1;              // igual, se inicializa el tope
+        p = new ArrayStack<>(n);    // se crea la pila con n casillas, si se llena duplica su tamaño
+        maximos = new IntStack(n);
     }
     
     // get...
     public Articulo [ ] getP ( ) {
-        return p;
+        return p.toArray(new Articulo[p.size()]);   // copia de la casilla 0 al tope
     }
     
     public int getTope ( ) {
-        return tope;
+        return p.size() - 1;
     }
     
     // set...
     public void setP ( Articulo [ ] nuevoP ) {
-        p = nuevoP;
+        setTope(-1);
+        for (Articulo a : nuevoP) {   // las casillas vacías (null) ya no forman parte de la pila
+            if (a != null) push(a);
+        }
     }
     
     public void setTope ( int nuevoTope ) {
-        tope = nuevoTope;
+        if (nuevoTope < -1 || nuevoTope > getTope()) throw new IndexOutOfBoundsException("Tope " + nuevoTope + " fuera de la pila de tamaño " + size());
+        
+        while (getTope() > nuevoTope) {   // sólo puede bajar el tope, no hay datos arriba de él
+            pop();
+        }
     }
     
     // inserta un elemento en la pila
     public void push ( Articulo nuevo ) {
-        if ( !isFull () ) {      // Se puede insertar si la pila NO está llena
-            tope++;               // mueve el tope a la sig. casilla libre
-            p[tope] = nuevo;     // guarda el dato en el tope de la pila
-        }
+        p.push(nuevo);      // si la pila está llena, crece en lugar de ignorar el dato
+        valorInventario += valorDe(nuevo.getPrecio(), nuevo.getCantidad());
+        descripciones.agregar(nuevo.getDescripcion());
+        nuevo.agregarObservador(casilla(p.size() - 1));      // para enterarse si cambia su precio o cantidad
+        
+        if (!maximosInvalidos) registrarMaximo(p.size() - 1);
     }
     
     // elimina un elemento de la pila
     public Articulo pop ( ) {
-        Articulo borrado = null;     //  variable para devolver el dato borrado ó -99999
-        if ( !isEmpty () ) {     // Se puede eliminar si NO está vacía
-            borrado = p[tope];      // se saca el dato del tope
-            p[tope] = null;            // se borra físicamente la casilla
-            tope--;                 // se decrementa el tope
-        }
+        if (isEmpty()) return null;     // devuelve null si la pila está vacía
+        
+        int casilla = getTope();
+        Articulo borrado = p.pop();
+        borrado.quitarObservador(casillas[casilla]);
+        descripciones.quitar(borrado.getDescripcion());
+        
+        // Al vaciarse la pila se reinicia el total, así no se acumula el error de redondeo de las restas
+        valorInventario = isEmpty() ? 0 : valorInventario - valorDe(borrado.getPrecio(), borrado.getCantidad());
+        
+        if (!maximosInvalidos && !maximos.isEmpty() && maximos.peek() == casilla) maximos.pop();
+        
         return borrado;
     }
     
     // método que checa si la pila está vacía
     public boolean isEmpty ( ) {
-        return (tope == -1);    // devuelve true ó false si está VACÍA o NO
+        return p.isEmpty();    // devuelve true ó false si está VACÍA o NO
     }
     
     // método que checa si la pila está llena
     public boolean isFull ( ) {
-        return ( tope == p.length - 1);   // devuelve true ó false si está LLENA o no
+        return false;   // la pila crece bajo demanda, nunca está LLENA
     }
     
     // devuelve el número de elementos que hay actualmente en la pila
     public int size ( )  {
-        return tope+1;
+        return p.size();
     }
     
+    // O(1): el total se actualiza en cada push, pop o cambio de un artículo de la pila
     public float getStockValue() {
-        return (float) Arrays.stream(p)
-                .filter(Objects::nonNull)
-                .mapToDouble(a -> a.getPrecio() * a.getCantidad())
-                .sum();
+        return (float) valorInventario;
     }
     
+    // O(1) salvo después de un cambio de precio que altera los máximos (ver articuloCambio); entonces se reconstruyen una sola vez
     public Articulo getMostExpensiveItem() {
-        return Arrays.stream(p)
-                .filter(Objects::nonNull)
-                .max(Comparator.comparingDouble(Articulo::getPrecio))
-                .orElse(null);
+        if (maximosInvalidos) reconstruirMaximos();
+        
+        return maximos.isEmpty() ? null : p.get(maximos.peek());
     }
     
+    // O(1) en promedio, usando el índice de descripciones en lugar de recorrer la pila
     public boolean doItemExist(String description) {
-        return Arrays.stream(p)
-                .filter(Objects::nonNull)
-                .anyMatch(it -> it.getDescripcion().equalsIgnoreCase(description));
+        return descripciones.contar(description) > 0;
+    }
+    
+    // cuántos artículos de la pila tienen la descripción dada, sin importar mayúsculas
+    public int countByDescription(String description) {
+        return descripciones.contar(description);
+    }
+    
+    // La casilla entra a los máximos sólo si su precio supera al máximo actual, así en un empate gana el artículo más antiguo
+    private void registrarMaximo(int casilla) {
+        if (maximos.isEmpty() || p.get(casilla).getPrecio() > p.get(maximos.peek()).getPrecio()) {
+            maximos.push(casilla);
+        }
+    }
+    
+    private void reconstruirMaximos() {
+        maximos.clear();
+        for (int i = 0; i < p.size(); i++) {
+            registrarMaximo(i);
+        }
+        
+        maximosInvalidos = false;
+    }
+    
+    /*
+     * Un cambio de precio en la casilla i sólo altera los máximos si i es uno de ellos, o si el nuevo precio supera al del
+     * máximo que la cubría (el último máximo debajo de i), que dejaría de serlo para las casillas de i hacia arriba. Un artículo
+     * que no es máximo y baja de precio, o sube sin pasar a ese máximo, no cambia nada.
+     */
+    private void articuloCambio(int casilla, Articulo articulo, String descripcionAnterior, int cantidadAnterior, float precioAnterior) {
+        if (articulo.getDescripcion() != descripcionAnterior) {     // misma referencia: sólo cambió el precio o la cantidad
+            descripciones.quitar(descripcionAnterior);
+            descripciones.agregar(articulo.getDescripcion());
+        }
+        
+        valorInventario += valorDe(articulo.getPrecio(), articulo.getCantidad()) - valorDe(precioAnterior, cantidadAnterior);
+        
+        if (articulo.getPrecio() != precioAnterior && !maximosInvalidos) {
+            int cubre = maximos.get(maximoHasta(casilla));
+            if (cubre == casilla || articulo.getPrecio() > p.get(cubre).getPrecio()) maximosInvalidos = true;
+        }
+    }
+    
+    // Posición en maximos del último máximo en la casilla dada o debajo de ella. Las casillas en maximos van en aumento y la 0 siempre está.
+    private int maximoHasta(int casilla) {
+        int bajo = 0, alto = maximos.size() - 1;
+        
+        while (bajo < alto) {
+            int medio = (bajo + alto + 1) >>> 1;
+            if (maximos.get(medio) <= casilla) bajo = medio; else alto = medio - 1;
+        }
+        
+        return bajo;
+    }
+    
+    private Casilla casilla(int indice) {
+        if (indice >= casillas.length) casillas = Arrays.copyOf(casillas, Math.max(indice + 1, casillas.length * 2));
+        if (casillas[indice] == null) casillas[indice] = new Casilla(indice);
+        
+        return casillas[indice];
+    }
+    
+    // Observador de una casilla: el artículo sólo lo referencia débilmente (ver Articulo), así una pila que se descarta sin vaciarla no queda viva por sus artículos
+    private final class Casilla implements ArticuloObserver {
+        private final int indice;
+        
+        Casilla(int indice) {
+            this.indice = indice;
+        }
+        
+        @Override
+        public void articuloCambio(Articulo articulo, String descripcionAnterior, int cantidadAnterior, float precioAnterior) {
+            PilaArticulo.this.articuloCambio(indice, articulo, descripcionAnterior, cantidadAnterior, precioAnterior);
+        }
+    }
+    
+    private static double valorDe(float precio, int cantidad) {
+        return (double) precio * cantidad;
+    }
+    
+    // escribe la pila del tope a la casilla 0, con el mismo formato que toString()
+    public void writeTo ( Appendable out ) throws IOException {
+        for (Articulo a : p) {
+            a.writeTo(out);
+            out.append('\n');
+        }
+    }
+    
+    public void writeTo ( WritableByteChannel canal ) throws IOException {
+        ChannelAppendable out = new ChannelAppendable(canal);
+        writeTo(out);
+        out.flush();
+    }
+    
+    // respaldo binario: número de artículos y luego descripción, cantidad y precio de cada uno, de la casilla 0 al tope
+    public void snapshot ( OutputStream out ) throws IOException {
+        DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(out));
+        dos.writeInt(SNAPSHOT_MAGIC);
+        dos.writeInt(p.size());
+        
+        for (int i = 0; i < p.size(); i++) {
+            Articulo a = p.get(i);
+            dos.writeUTF(a.getDescripcion() == null ? "" : a.getDescripcion());
+            dos.writeInt(a.getCantidad());
+            dos.writeFloat(a.getPrecio());
+        }
+        
+        dos.flush();    // no se cierra, el flujo es de quien lo pasó
+    }
+    
+    // reconstruye una pila a partir de snapshot(); conviene pasar un flujo con buffer
+    public static PilaArticulo restore ( InputStream in ) throws IOException {
+        DataInputStream dis = new DataInputStream(in);
+        if (dis.readInt() != SNAPSHOT_MAGIC) throw new IOException("El flujo no contiene un respaldo de PilaArticulo");
+        
+        int n = dis.readInt();
+        if (n < 0) throw new IOException("Respaldo de PilaArticulo corrupto: " + n + " artículos");
+        
+        // n viene del flujo: la pila empieza con las casillas que alcanzan los bytes disponibles y crece conforme llegan los artículos
+        PilaArticulo pila = new PilaArticulo(Math.max(Math.min(n, dis.available() / MIN_SNAPSHOT_BYTES), 1));
+        for (int i = 0; i < n; i++) {
+            pila.push(new Articulo(dis.readUTF(), dis.readInt(), dis.readFloat()));
+        }
+        
+        return pila;
     }
     
     public String toString ( ) {
-        String s="";
-        int i;
-        for( i = tope; i >= 0; i--)  // recorre la pila del tope a la casilla 0
-            s += p[i]+"\n";
-        return s;
+        StringBuilder sb = new StringBuilder();
+        try {
+            writeTo(sb);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);  // StringBuilder nunca lanza IOException
+        }
+        return sb.toString();
     }
 }  // fin de la clase PilaInt
 
@@ -0,0 +1,121 @@
+package com.korealm;
+
+import java.util.Arrays;
+
+/*
+ * Letter / digit / symbol / whitespace categories for chars, for code that splits large amounts of text.
+ *
+ * category() answers from a precomputed table for Latin-1, Latin Extended-A and Latin Extended-B (U+0000 .. U+024F), which
+ * covers Spanish text, and only falls back to Character.isLetter / isDigit above that. The table is built from those same
+ * predicates, so both paths always agree with the JDK. SPACE is the set matched by \s in java.util.regex; every other char
+ * that is neither a letter nor a digit is a SYMBOL.
+ *
+ * classify() does whole arrays at once and writes one bitmask per category. When the JVM runs with
+ * --add-modules jdk.incubator.vector it uses VectorCharClassifier, which handles a whole vector of chars (16 or 32 on
+ * AVX2 / AVX-512) per iteration; otherwise it loops over the table.
+ */
+public final class CharClassifier {
+    public static final int LETTER = 0, DIGIT = 1, SYMBOL = 2, SPACE = 3;
+
+    private static final int TABLE_CHARS = 0x250;
+    private static final byte[] TABLE = new byte[TABLE_CHARS];
+
+    static {
+        for (char c = 0; c < TABLE_CHARS; c++) {
+            TABLE[c] = (byte) slowCategory(c);
+        }
+    }
+
+    // Fills the bitmasks of a whole array: bit i of each mask is src[off + i]
+    interface Bulk {
+        void classify(char[] src, int off, int len, long[] letters, long[] digits, long[] spaces);
+    }
+
+    private static final Bulk BULK = loadVectorized();
+
+    private CharClassifier() {}
+
+    public static int category(char c) {
+        return (c < TABLE_CHARS) ? TABLE[c] : slowCategory(c);
+    }
+
+    public static boolean isLetter(char c) {
+        return category(c) == LETTER;
+    }
+
+    public static boolean isDigit(char c) {
+        return category(c) == DIGIT;
+    }
+
+    public static boolean isSpace(char c) {
+        return category(c) == SPACE;
+    }
+
+    /*
+     * Classifies src[off] .. src[off + len - 1]. Bit i of letters, digits and spaces (word i / 64, bit i % 64) is set when
+     * src[off + i] is in that category; the symbols are the chars with none of the three bits set.
+     * Every mask needs at least (len + 63) / 64 words, and those words are overwritten.
+     */
+    public static void classify(char[] src, int off, int len, long[] letters, long[] digits, long[] spaces) {
+        if (off < 0 || len < 0 || len > src.length - off) throw new IndexOutOfBoundsException("Rango [" + off + ", " + off + " + " + len + ") fuera de un arreglo de tamaño " + src.length);
+
+        int words = (len + 63) >>> 6;
+        if (letters.length < words || digits.length < words || spaces.length < words) throw new IllegalArgumentException("Las máscaras necesitan " + words + " palabras");
+
+        Arrays.fill(letters, 0, words, 0);
+        Arrays.fill(digits, 0, words, 0);
+        Arrays.fill(spaces, 0, words, 0);
+
+        if (BULK != null) {
+            BULK.classify(src, off, len, letters, digits, spaces);
+        } else {
+            classifyScalar(src, off, len, letters, digits, spaces, 0);
+        }
+    }
+
+    // Table loop for src[off + from] .. src[off + len - 1]; the vector path also uses it for the tail
+    static void classifyScalar(char[] src, int off, int len, long[] letters, long[] digits, long[] spaces, int from) {
+        int i = from;
+
+        while (i < len) {
+            // Each mask word is built in locals and stored once
+            int word = i >>> 6;
+            int end = Math.min(len, (word + 1) << 6);
+            long letterBits = 0, digitBits = 0, spaceBits = 0;
+
+            for (; i < end; i++) {
+                long bit = 1L << i;
+
+                switch (category(src[off + i])) {
+                    case LETTER -> letterBits |= bit;
+                    case DIGIT -> digitBits |= bit;
+                    case SPACE -> spaceBits |= bit;
+                    default -> { }
+                }
+            }
+
+            letters[word] |= letterBits;
+            digits[word] |= digitBits;
+            spaces[word] |= spaceBits;
+        }
+    }
+
+    private static int slowCategory(char c) {
+        if (Character.isLetter(c)) return LETTER;
+        if (Character.isDigit(c)) return DIGIT;
+        if (c == ' ' || (c >= '\t' && c <= '\r')) return SPACE;
+
+        return SYMBOL;
+    }
+
+    // The incubator module is only there when the JVM was started with it, so the vector class is loaded by name
+    private static Bulk loadVectorized() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) return null;
+
+        try {
+            return (Bulk) Class.forName("com.korealm.VectorCharClassifier").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package com.korealm.Pilas;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.stream.Stream;
+
+/*
+ * Generic array backed stack that grows instead of dropping elements.
+ * The backing array doubles when it is full, so a push is O(1) amortized. If the shrink policy is enabled, the array is
+ * halved once it is only a quarter full (never below the initial capacity). The gap between 1/4 and 1/2 avoids resizing
+ * back and forth when pushes and pops alternate around a boundary.
+ *
+ * Iteration goes from the top to the bottom, like the toString() of every other stack in this module, while stream() and
+ * get(int) go from the bottom (index 0) to the top.
+ */
+public class ArrayStack<T> implements Iterable<T> {
+    private static final int DEFAULT_CAPACITY = 5;
+    private static final int MAX_CAPACITY = Integer.MAX_VALUE - 8; // Some VMs reserve header words in arrays
+
+    private Object[] elements;
+    private int size;
+    private final int initialCapacity;
+    private final boolean shrink;
+
+    public ArrayStack() {
+        this(DEFAULT_CAPACITY, false);
+    }
+
+    public ArrayStack(int initialCapacity) {
+        this(initialCapacity, false);
+    }
+
+    public ArrayStack(int initialCapacity, boolean shrink) {
+        if (initialCapacity < 0) throw new IllegalArgumentException("Capacidad negativa: " + initialCapacity);
+
+        this.elements = new Object[Math.max(initialCapacity, 1)];
+        this.initialCapacity = elements.length;
+        this.shrink = shrink;
+    }
+
+    public void push(T value) {
+        if (size == elements.length) {
+            grow(size + 1);
+        }
+
+        elements[size++] = value;
+    }
+
+    // Pushes the whole array in order, so values[values.length - 1] ends on the top. It grows at most once.
+    public void pushAll(T[] values) {
+        if (values.length == 0) return;
+
+        if (size + values.length > elements.length) {
+            grow(size + values.length);
+        }
+
+        System.arraycopy(values, 0, elements, size, values.length);
+        size += values.length;
+    }
+
+    public T pop() {
+        if (size == 0) return null;
+
+        T removed = elementAt(--size);
+        elements[size] = null; // Let the GC claim it
+
+        shrinkIfNeeded();
+        return removed;
+    }
+
+    // Pops up to n elements and returns them in pop order (the old top first).
+    public List<T> popN(int n) {
+        if (n < 0) throw new IllegalArgumentException("No se pueden sacar " + n + " elementos");
+
+        int count = Math.min(n, size);
+        List<T> removed = new ArrayList<>(count);
+
+        for (int i = size - 1; i >= size - count; i--) {
+            removed.add(elementAt(i));
+        }
+
+        truncate(size - count);
+        return removed;
+    }
+
+    public T peek() {
+        return (size != 0) ? elementAt(size - 1) : null;
+    }
+
+    // Element at the given position counted from the bottom of the stack.
+    public T get(int index) {
+        if (index < 0 || index >= size) throw new IndexOutOfBoundsException("Índice " + index + " fuera de la pila de tamaño " + size);
+
+        return elementAt(index);
+    }
+
+    // Drops every element above newSize. Used by the stacks that still expose a setter for their pointer.
+    public void truncate(int newSize) {
+        if (newSize < 0 || newSize > size) throw new IndexOutOfBoundsException("Tamaño " + newSize + " fuera de la pila de tamaño " + size);
+
+        Arrays.fill(elements, newSize, size, null);
+        size = newSize;
+
+        shrinkIfNeeded();
+    }
+
+    public void clear() {
+        truncate(0);
+    }
+
+    public boolean isEmpty() {
+        return (size == 0);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return elements.length;
+    }
+
+    // Copies the elements from the bottom to the top, following the same contract as Collection.toArray(T[]).
+    @SuppressWarnings("unchecked")
+    public T[] toArray(T[] a) {
+        if (a.length < size) {
+            return (T[]) Arrays.copyOf(elements, size, a.getClass());
+        }
+
+        System.arraycopy(elements, 0, a, 0, size);
+        if (a.length > size) a[size] = null;
+
+        return a;
+    }
+
+    @SuppressWarnings("unchecked")
+    public Stream<T> stream() {
+        return (Stream<T>) Arrays.stream(elements, 0, size);
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return new Iterator<>() {
+            private int next = size - 1;
+
+            @Override
+            public boolean hasNext() {
+                return next >= 0;
+            }
+
+            @Override
+            public T next() {
+                if (next < 0) throw new NoSuchElementException();
+
+                return elementAt(next--);
+            }
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    private T elementAt(int index) {
+        return (T) elements[index];
+    }
+
+    private void grow(int minCapacity) {
+        if (minCapacity < 0 || minCapacity > MAX_CAPACITY) throw new OutOfMemoryError("La pila excede la capacidad máxima de un arreglo");
+
+        int newCapacity = (int) Math.min((long) elements.length * 2, MAX_CAPACITY);
+        elements = Arrays.copyOf(elements, Math.max(newCapacity, minCapacity));
+    }
+
+    private void shrinkIfNeeded() {
+        if (!shrink) return;
+
+        int newCapacity = elements.length;
+        while (newCapacity / 2 >= initialCapacity && size <= newCapacity / 4) {
+            newCapacity /= 2;
+        }
+
+        if (newCapacity != elements.length) {
+            elements = Arrays.copyOf(elements, newCapacity);
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+
+        for (int i = size - 1; i >= 0; i--) {
+            sb.append(elements[i]).append("\n");
+        }
+
+        return sb.toString();
+    }
+}
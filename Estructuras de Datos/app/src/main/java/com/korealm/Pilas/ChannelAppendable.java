@@ -0,0 +1,106 @@
+package com.korealm.Pilas;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+/*
+ * Appendable that encodes text as UTF-8 straight into a channel through two fixed buffers, so the stacks can stream their
+ * contents with writeTo(WritableByteChannel) without building the whole String first.
+ * Nothing reaches the channel until a buffer fills up or flush() is called. Closing the channel is up to the caller.
+ */
+public class ChannelAppendable implements Appendable, Flushable {
+    private static final int BUFFER_CHARS = 8192;
+
+    private final WritableByteChannel canal;
+    // A stack written top to bottom reverses surrogate pairs, so the halves left alone go out as '?' instead of failing the whole write
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    private final CharBuffer chars = CharBuffer.allocate(BUFFER_CHARS);
+    private final ByteBuffer bytes = ByteBuffer.allocate(BUFFER_CHARS * 3);    // Enough for any BMP char in UTF-8
+
+    public ChannelAppendable(WritableByteChannel canal) {
+        this.canal = canal;
+    }
+
+    @Override
+    public Appendable append(CharSequence csq) throws IOException {
+        if (csq == null) csq = "null";
+
+        return append(csq, 0, csq.length());
+    }
+
+    @Override
+    public Appendable append(CharSequence csq, int start, int end) throws IOException {
+        if (csq == null) csq = "null";
+
+        while (start < end) {
+            if (!chars.hasRemaining()) encode(false);
+
+            int n = Math.min(end - start, chars.remaining());
+            for (int i = 0; i < n; i++) {
+                chars.put(csq.charAt(start + i));
+            }
+            start += n;
+        }
+
+        return this;
+    }
+
+    @Override
+    public Appendable append(char c) throws IOException {
+        if (!chars.hasRemaining()) encode(false);
+
+        chars.put(c);
+        return this;
+    }
+
+    // Encodes and writes everything appended so far, and resets the encoder for whatever comes next.
+    @Override
+    public void flush() throws IOException {
+        encode(true);
+
+        while (encoder.flush(bytes).isOverflow()) {
+            drain();
+        }
+        drain();
+
+        encoder.reset();
+    }
+
+    private void encode(boolean endOfInput) throws IOException {
+        chars.flip();
+
+        while (true) {
+            CoderResult result = encoder.encode(chars, bytes, endOfInput);
+
+            if (result.isOverflow()) {
+                drain();
+            } else if (result.isError()) {
+                result.throwException();
+            } else {
+                break;
+            }
+        }
+
+        chars.compact();    // Keeps a high surrogate whose pair hasn't been appended yet
+        drain();
+    }
+
+    private void drain() throws IOException {
+        bytes.flip();
+
+        while (bytes.hasRemaining()) {
+            canal.write(bytes);
+        }
+
+        bytes.clear();
+    }
+}
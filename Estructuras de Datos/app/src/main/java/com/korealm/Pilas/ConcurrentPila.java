@@ -0,0 +1,131 @@
+package com.korealm.Pilas;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/*
+ * Lock-free stack (Treiber stack) for several producer and consumer threads.
+ * The top is an AtomicReference to a node that never changes once published, and push/pop retry a compareAndSet until they win.
+ * Every node also stores the size of the stack below and including it, so size() is a single read that is always
+ * consistent with the top.
+ *
+ * Optionally it uses an elimination array as backoff: when a CAS on the top fails because of contention, a push offers
+ * its node in a random slot for a short while, and a pop that also failed its CAS can take it from there. Such a pair
+ * cancels out without touching the top, which is what keeps the stack scaling when many threads hit it at once.
+ * Like PilaLibros and PilaArticulo, pop() and peek() return null when the stack is empty, so null values are rejected.
+ */
+public class ConcurrentPila<T> {
+    private static final int SPINS = 64;    // How long a push waits in the elimination array for a pop to take it
+
+    private static final class Nodo<T> {
+        final T valor;
+        Nodo<T> siguiente;  // Written only before the node is published with a CAS
+        int tamano;
+
+        Nodo(T valor) {
+            this.valor = valor;
+        }
+    }
+
+    private final AtomicReference<Nodo<T>> tope = new AtomicReference<>();
+    private final AtomicReferenceArray<Nodo<T>> eliminacion; // null when elimination is disabled
+
+    public ConcurrentPila() {
+        this(0);
+    }
+
+    // eliminationSlots = 0 gives a plain Treiber stack. Around half the number of contending threads is a good size.
+    public ConcurrentPila(int eliminationSlots) {
+        if (eliminationSlots < 0) throw new IllegalArgumentException("Número de casillas negativo: " + eliminationSlots);
+
+        eliminacion = (eliminationSlots > 0) ? new AtomicReferenceArray<>(eliminationSlots) : null;
+    }
+
+    public void push(T value) {
+        Nodo<T> nuevo = new Nodo<>(Objects.requireNonNull(value, "ConcurrentPila no acepta null"));
+
+        while (true) {
+            Nodo<T> actual = tope.get();
+            nuevo.siguiente = actual;
+            nuevo.tamano = (actual == null) ? 1 : actual.tamano + 1;
+
+            if (tope.compareAndSet(actual, nuevo)) return;
+
+            if (eliminacion != null && eliminarPush(nuevo)) return;
+        }
+    }
+
+    public T pop() {
+        while (true) {
+            Nodo<T> actual = tope.get();
+            if (actual == null) return null;
+
+            if (tope.compareAndSet(actual, actual.siguiente)) return actual.valor;
+
+            if (eliminacion != null) {
+                Nodo<T> eliminado = eliminarPop();
+                if (eliminado != null) return eliminado.valor;
+            }
+        }
+    }
+
+    public T peek() {
+        Nodo<T> actual = tope.get();
+        return (actual != null) ? actual.valor : null;
+    }
+
+    public boolean isEmpty() {
+        return tope.get() == null;
+    }
+
+    // Exact at the moment of the read: the size travels with the top node. Values taken through the elimination array never change it.
+    public int size() {
+        Nodo<T> actual = tope.get();
+        return (actual != null) ? actual.tamano : 0;
+    }
+
+    // Offers the node in a random slot. Returns true if a pop took it, false if the push has to go back to the top.
+    private boolean eliminarPush(Nodo<T> nodo) {
+        int casilla = ThreadLocalRandom.current().nextInt(eliminacion.length());
+        if (!eliminacion.compareAndSet(casilla, null, nodo)) return false;
+
+        for (int i = 0; i < SPINS; i++) {
+            if (eliminacion.get(casilla) != nodo) return true;
+            Thread.onSpinWait();
+        }
+
+        // If taking the offer back fails, a pop got it in the meantime
+        return !eliminacion.compareAndSet(casilla, nodo, null);
+    }
+
+    private Nodo<T> eliminarPop() {
+        int casilla = ThreadLocalRandom.current().nextInt(eliminacion.length());
+        Nodo<T> ofrecido = eliminacion.get(casilla);
+
+        return (ofrecido != null && eliminacion.compareAndSet(casilla, ofrecido, null)) ? ofrecido : null;
+    }
+
+    // Writes the values from the top to the bottom, one per line. It walks the stack as it was when the call started.
+    public void writeTo(Appendable out) throws IOException {
+        for (Nodo<T> n = tope.get(); n != null; n = n.siguiente) {
+            out.append(String.valueOf(n.valor)).append('\n');
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+
+        try {
+            writeTo(sb);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // A StringBuilder never throws
+        }
+
+        return sb.toString();
+    }
+}
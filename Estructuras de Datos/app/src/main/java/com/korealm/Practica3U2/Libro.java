@@ -1,10 +1,19 @@
 package com.korealm.Practica3U2;
 
+import java.util.Formatter;
+
 public class Libro {
+    private static final String FORMATO = "Libro {\n\tTitulo: %s\n\tAutor: %s\n\tPrecio: %.2f\n}";
+    
     private String titulo;
     private String autor;
     private float precio;
     
+    // While the book sits in a PilaLibros its price is scaled lazily by the stack: the effective price is precioBase times
+    // the stack factor, and precio is only written back once the book leaves the stack.
+    PilaLibros pila;
+    double precioBase;
+    
     public Libro() {
         this.titulo = "";
         this.autor = "";
@@ -34,15 +43,24 @@ public class Libro {
     }
     
     public float getPrecio() {
-        return precio;
+        return (pila == null) ? precio : pila.precioEfectivo(this);
     }
     
     public void setPrecio(float precio) {
-        this.precio = precio;
+        if (pila == null) {
+            this.precio = precio;
+        } else {
+            pila.cambiarPrecio(this, precio);
+        }
+    }
+    
+    // Streams the same text as toString() through a Formatter that PilaLibros reuses for every book
+    void writeTo(Formatter formatter) {
+        formatter.format(FORMATO, titulo, autor, getPrecio());
     }
     
     @Override
     public String toString() {
-        return String.format("Libro {\n\tTitulo: %s\n\tAutor: %s\n\tPrecio: %.2f\n}", titulo, autor, precio);
+        return String.format(FORMATO, titulo, autor, getPrecio());
     }
 }
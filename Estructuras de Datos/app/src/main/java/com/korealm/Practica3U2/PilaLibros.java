@@ -1,67 +1,100 @@
 package com.korealm.Practica3U2;
 
-import java.util.Arrays;
+import com.korealm.Pilas.ArrayStack;
+import com.korealm.Pilas.ChannelAppendable;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.WritableByteChannel;
+import java.util.Formatter;
 import java.util.Objects;
 
+/*
+ * Book prices are scaled lazily: raiseBooksPrices only multiplies a stack-wide factor, and every book stores its base price
+ * (its price divided by the factor at the time it was pushed or repriced). The effective price is base * factor, and the
+ * total price is the running sum of the bases times the factor, so both raises and totals are O(1).
+ * Because of this a book can only be in one PilaLibros at a time.
+ */
 public class PilaLibros {
-    private Libro[] stack;
-    private int stackPointer = -1;
+    // Outside these bounds the factor is folded back into the base prices, before double precision starts to suffer.
+    private static final double MIN_FACTOR = 1e-30, MAX_FACTOR = 1e30;
+    private static final int SNAPSHOT_MAGIC = 0x504C4931; // "PLI1", marks the streams written by snapshot()
+    private static final int MIN_SNAPSHOT_BYTES = 2 + 2 + 4; // The smallest book in a snapshot: empty title and author, and the price
+    
+    private final ArrayStack<Libro> stack; // Grows on demand instead of silently dropping books once it is full
+    private double factor = 1;
+    private double baseTotal;
     
     public PilaLibros() {
-        stack = new Libro[5];
+        stack = new ArrayStack<>(5);
     }
     
     public PilaLibros(int n) {
-        stack = new Libro[n];
+        stack = new ArrayStack<>(n);
     }
     
     public Libro[] getStack() {
-        return stack;
+        return stack.toArray(new Libro[stack.size()]);
     }
     
     public int getPointer() {
-        return stackPointer;
+        return stack.size() - 1;
     }
     
-    public void setStack(Libro[] stack) {
-        this.stack = stack;
+    public void setStack(Libro[] books) {
+        setPointer(-1);
+        
+        for (Libro book : books) {
+            if (book != null) push(book);
+        }
     }
     
     public void setPointer(int stackPointer) {
-        this.stackPointer = stackPointer;
+        if (stackPointer < -1 || stackPointer > getPointer()) throw new IndexOutOfBoundsException("Tope " + stackPointer + " fuera de la pila de tamaño " + size());
+        
+        while (getPointer() > stackPointer) {
+            pop();
+        }
     }
     
     public void push(Libro value) {
-        if (!isFull()) {
-            stackPointer++;
-            stack[stackPointer] = value;
-        }
+        if (value.pila != null) throw new IllegalArgumentException("El libro \"" + value.getTitulo() + "\" ya está en una pila");
+        
+        value.precioBase = value.getPrecio() / factor;
+        value.pila = this;
+        baseTotal += value.precioBase;
+        
+        stack.push(value);
     }
     
     public Libro pop() {
-        Libro removed = null;
+        Libro removed = stack.pop();
         
-        if ( !isEmpty() ) {
-            removed = stack[stackPointer];
-            stack[stackPointer] = null;
-            
-            stackPointer--;
+        if (removed != null) {
+            detach(removed);
+            if (stack.isEmpty()) reset(); // Don't let rounding errors from the subtractions pile up
         }
         
         return removed;
     }
     
     public Libro peek() {
-        return (stackPointer != -1) ? stack[stackPointer] : null;
+        return stack.peek();
     }
     
     public void raiseBooksPrices(float raise) {
-        if (stackPointer < 0) {
-            return;
-        }
+        // A NaN or infinite factor could never be folded back, and would stay even after the stack is emptied
+        if (!Float.isFinite(raise)) throw new IllegalArgumentException("Aumento inválido: " + raise);
+        
+        factor *= raise;
         
-        for (int i = stackPointer; i >= 0; i--) {
-            stack[i].setPrecio(stack[i].getPrecio() * raise);
+        if (factor == 0 || Math.abs(factor) < MIN_FACTOR || Math.abs(factor) > MAX_FACTOR) {
+            normalize();
         }
     }
     
@@ -69,38 +102,129 @@ public class PilaLibros {
         if (this.isEmpty()) return null;
         
         StringBuilder sb = new StringBuilder();
-        for (int i = stackPointer; i >= 0; i--) {
-            sb.append(String.format("%s\n", stack[i].getTitulo()));
+        for (Libro book : stack) {
+            sb.append(String.format("%s\n", book.getTitulo()));
+            detach(book);
         }
         
-        this.setStack(new Libro[stack.length]);
-        this.setPointer(-1);
+        stack.clear();
+        reset();
         
         return sb.toString();
     }
     
     public float getTotalPrice() {
-        return (float) Arrays.stream(stack).filter(Objects::nonNull).mapToDouble(Libro::getPrecio).sum();
+        return (float) (baseTotal * factor);
+    }
+    
+    float precioEfectivo(Libro book) {
+        return (float) (book.precioBase * factor);
+    }
+    
+    void cambiarPrecio(Libro book, float precio) {
+        baseTotal -= book.precioBase;
+        book.precioBase = precio / factor;
+        baseTotal += book.precioBase;
+    }
+    
+    // Writes the effective price back into the book, so it keeps it once it is no longer scaled by this stack.
+    private void detach(Libro book) {
+        float precio = precioEfectivo(book);
+        
+        baseTotal -= book.precioBase;
+        book.pila = null;
+        book.setPrecio(precio);
+    }
+    
+    // With no books left there is nothing to scale, so the next ones start from a clean factor
+    private void reset() {
+        baseTotal = 0;
+        factor = 1;
+    }
+    
+    // Folds the factor into every base price. O(n), but it only runs when the factor drifts out of range.
+    private void normalize() {
+        baseTotal = 0;
+        
+        for (Libro book : stack) {
+            book.precioBase *= factor;
+            baseTotal += book.precioBase;
+        }
+        
+        factor = 1;
     }
     
     public boolean isEmpty() {
-        return (stackPointer == -1);
+        return stack.isEmpty();
     }
     
     public boolean isFull() {
-        return (stackPointer == stack.length - 1);
+        return false; // The stack grows on demand, so it is never full
     }
     
     public int size() {
-        return stackPointer + 1;
+        return stack.size();
+    }
+    
+    // Writes the books from the top to the bottom, in the same format as toString()
+    public void writeTo(Appendable out) throws IOException {
+        Formatter formatter = new Formatter(out);
+        
+        for (Libro book : stack) {
+            book.writeTo(formatter);
+            out.append('\n');
+        }
+        
+        if (formatter.ioException() != null) throw formatter.ioException(); // Formatter swallows them otherwise
+    }
+    
+    public void writeTo(WritableByteChannel channel) throws IOException {
+        ChannelAppendable out = new ChannelAppendable(channel);
+        writeTo(out);
+        out.flush();
+    }
+    
+    // Binary checkpoint: the number of books, then title, author and effective price of each one from the bottom to the top
+    public void snapshot(OutputStream out) throws IOException {
+        DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(out));
+        dos.writeInt(SNAPSHOT_MAGIC);
+        dos.writeInt(stack.size());
+        
+        for (int i = 0; i < stack.size(); i++) {
+            Libro book = stack.get(i);
+            dos.writeUTF(Objects.requireNonNullElse(book.getTitulo(), ""));
+            dos.writeUTF(Objects.requireNonNullElse(book.getAutor(), ""));
+            dos.writeFloat(book.getPrecio());
+        }
+        
+        dos.flush(); // The stream belongs to the caller, so it is not closed
+    }
+    
+    // Rebuilds a stack written by snapshot(). The stream is read as is, so pass a buffered one.
+    public static PilaLibros restore(InputStream in) throws IOException {
+        DataInputStream dis = new DataInputStream(in);
+        if (dis.readInt() != SNAPSHOT_MAGIC) throw new IOException("El flujo no contiene un respaldo de PilaLibros");
+        
+        int n = dis.readInt();
+        if (n < 0) throw new IOException("Respaldo de PilaLibros corrupto: " + n + " libros");
+        
+        // n comes from the stream, so it only sizes the stack as far as the available bytes can hold; it grows from there
+        PilaLibros pila = new PilaLibros(Math.max(Math.min(n, dis.available() / MIN_SNAPSHOT_BYTES), 1));
+        for (int i = 0; i < n; i++) {
+            pila.push(new Libro(dis.readUTF(), dis.readUTF(), dis.readFloat()));
+        }
+        
+        return pila;
     }
     
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder();
         
-        for (int i = stackPointer; i >= 0; i--) {
-            sb.append(stack[i]).append("\n");
+        try {
+            writeTo(sb);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // A StringBuilder never throws
         }
         
         return sb.toString();
@@ -0,0 +1,71 @@
+package com.korealm.U2Practica4;
+
+import com.korealm.CharClassifier;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.CharBuffer;
+
+/*
+ * Splits text into the letter, digit and symbol stacks in a single pass, keeping only the first time each char shows up.
+ * Duplicates are found through a bitmap with one bit per UTF-16 char (65536 bits, 8 KB), so nothing is boxed, and the
+ * chars go straight into the PilaChar stacks. The category comes from the CharClassifier table, and whitespace (the same
+ * chars the old "\\s" regex removed) is skipped.
+ *
+ * Because there are at most 65536 distinct chars, the stacks are bounded too: clasificar(Reader) reads the input in
+ * fixed chunks of BUFFER_CHARS and classifies texts of any length in constant memory.
+ */
+class ClasificadorCaracteres {
+    static final int LETTERS = 0, NUMBERS = 1, SYMBOLS = 2;
+    private static final int BUFFER_CHARS = 8192;
+
+    private final long[] vistos = new long[(Character.MAX_VALUE + 1) / Long.SIZE];
+    private final PilaChar[] pilas;
+    private CharBuffer buffer;     // Only allocated by clasificar(Reader)
+
+    ClasificadorCaracteres() {
+        pilas = new PilaChar[] { new PilaChar(), new PilaChar(), new PilaChar() };
+    }
+
+    void clasificar(CharSequence texto) {
+        for (int i = 0, n = texto.length(); i < n; i++) {
+            clasificar(texto.charAt(i));
+        }
+    }
+
+    // Reads until the end of the input. Closing the reader is up to the caller.
+    void clasificar(Reader in) throws IOException {
+        if (buffer == null) buffer = CharBuffer.allocate(BUFFER_CHARS);
+
+        while (in.read(buffer) != -1) {
+            buffer.flip();
+
+            char[] chars = buffer.array();
+            for (int i = 0, n = buffer.limit(); i < n; i++) {
+                clasificar(chars[i]);
+            }
+
+            buffer.clear();
+        }
+    }
+
+    void clasificar(char c) {
+        int categoria = CharClassifier.category(c);
+        if (categoria == CharClassifier.SPACE) return;
+
+        long bit = 1L << c;    // Only the low 6 bits of c count for the shift
+        int palabra = c >>> 6;
+        if ((vistos[palabra] & bit) != 0) return;
+        vistos[palabra] |= bit;
+
+        switch (categoria) {
+            case CharClassifier.LETTER -> pilas[LETTERS].push(c);
+            case CharClassifier.DIGIT -> pilas[NUMBERS].push(c);
+            default -> pilas[SYMBOLS].push(c);
+        }
+    }
+
+    PilaChar pila(int tipo) {
+        return pilas[tipo];
+    }
+}
@@ -1,76 +1,113 @@
 package com.korealm.U2Practica4;
 
+import com.korealm.Pilas.ChannelAppendable;
+import com.korealm.Pilas.CharStack;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.WritableByteChannel;
+import java.util.function.IntConsumer;
+
 public class PilaChar {
-    private char[] stack;
-    private int stackPointer = -1;
-    private static final char NULL = '\0';
+    private final CharStack stack; // Generated primitive stack, so no char is ever boxed
     
     public PilaChar() {
-        stack = new char[5];
+        stack = new CharStack(5);
     }
     
     public PilaChar(int n) {
-        stack = new char[n];
+        stack = new CharStack(n);
+    }
+    
+    private PilaChar(CharStack stack) {
+        this.stack = stack;
     }
     
     public char[] getStack() {
-        return stack;
+        return stack.toArray();
     }
     
     public int getPointer() {
-        return stackPointer;
+        return stack.size() - 1;
     }
     
-    public void setStack(char[] stack) {
-        this.stack = stack;
+    public void setStack(char[] chars) {
+        stack.clear();
+        stack.pushAll(chars, 0, chars.length);
     }
     
     public void setPointer(int stackPointer) {
-        this.stackPointer = stackPointer;
+        stack.truncate(stackPointer + 1);
     }
     
     public void push(char value) {
-        if (!isFull()) {
-            stackPointer++;
-            stack[stackPointer] = value;
-        }
+        stack.push(value);
     }
     
     public char pop() {
-        char removed = NULL;
-        
-        if ( !isEmpty() ) {
-            removed = stack[stackPointer];
-            stack[stackPointer] = NULL;
-            
-            stackPointer--;
-        }
-        
-        return removed;
+        return stack.pop(); // '\0' when the stack is empty
     }
     
     public char peek() {
-        return (stackPointer != -1) ? stack[stackPointer] : NULL;
+        return stack.peek();
+    }
+    
+    // Bulk operations, straight from the primitive stack
+    public void pushAll(char[] src, int off, int len) {
+        stack.pushAll(src, off, len);
+    }
+    
+    public int drainTo(char[] dst, int off) {
+        return stack.drainTo(dst, off);
+    }
+    
+    public void forEachFromTop(IntConsumer action) {
+        stack.forEachFromTop(action);
     }
     
     public boolean isEmpty() {
-        return (stackPointer == -1);
+        return stack.isEmpty();
     }
     
     public boolean isFull() {
-        return (stackPointer == stack.length - 1);
+        return false; // The stack grows on demand, so it is never full
     }
     
     public int size() {
-        return stackPointer + 1;
+        return stack.size();
+    }
+    
+    // Writes the chars from the top to the bottom, one per line, in the same format as toString()
+    public void writeTo(Appendable out) throws IOException {
+        for (int i = stack.size() - 1; i >= 0; i--) {
+            out.append(stack.get(i)).append('\n');
+        }
+    }
+    
+    public void writeTo(WritableByteChannel channel) throws IOException {
+        ChannelAppendable out = new ChannelAppendable(channel);
+        writeTo(out);
+        out.flush();
+    }
+    
+    public void snapshot(OutputStream out) throws IOException {
+        stack.snapshot(out);
+    }
+    
+    public static PilaChar restore(InputStream in) throws IOException {
+        return new PilaChar(CharStack.restore(in));
     }
     
     @Override
     public String toString() {
-        StringBuilder sb = new StringBuilder();
+        StringBuilder sb = new StringBuilder((int) Math.min(stack.size() * 2L, Integer.MAX_VALUE - 8));   // Two chars per element, without overflowing an int
         
-        for (int i = stackPointer; i >= 0; i--) {
-            sb.append(stack[i]).append("\n");
+        try {
+            writeTo(sb);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // A StringBuilder never throws
         }
         
         return sb.toString();
@@ -3,37 +3,45 @@ package com.korealm.U2Practica4;
 import java.io.BufferedReader;
 import java.io.InputStreamReader;
 import java.io.IOException;
-import java.util.LinkedHashSet;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Objects;
-import java.util.stream.Collectors;
 
 public class U2Practica4 {
-    private static final int LETTERS=0, NUMBERS=1, SYMBOLS=2;
+    private static final int LETTERS = ClasificadorCaracteres.LETTERS, NUMBERS = ClasificadorCaracteres.NUMBERS, SYMBOLS = ClasificadorCaracteres.SYMBOLS;
     
     static void readString(BufferedReader br, PilaChar[] stack) throws IOException {
         System.out.print("Ingresa una oración: ");
-        final String raw = br.readLine()
-                .replaceAll("\\s", "")
-                .chars().mapToObj(c -> (char) c) // Convert int to char, because the chars() function returns an IntStream and thus would be... hard, to collect it back.
-                .collect(Collectors.toCollection(LinkedHashSet::new)).stream() // Let's take advantage of sets as they natively remove duplicates (using LinkedHashSet because if don't, the original order of the chars will be lost), and let's return to streams after that.
-                .map(String::valueOf) // Convert each char to a string (unfortunately, even tho I know this is not the most "optimized" way of proceeding, the joining() method from Collectors requires Strings to return a String.
-                .collect(Collectors.joining());
+        final String line = br.readLine();
+        if (line == null) return;
+        
+        // One pass over the line: a bitmap drops the repeated chars and each new one goes straight into its stack.
+        // The stacks are only replaced after the line was read successfully.
+        ClasificadorCaracteres clasificador = new ClasificadorCaracteres();
+        clasificador.clasificar(line);
         
-        // Initializing the three PilaChar objects after knowing that we could successfully read an entry from the user.
         for (int i = 0; i < stack.length; i++) {
-            stack[i] = new PilaChar(raw.length());
+            stack[i] = clasificador.pila(i);
         }
+    }
+    
+    // Streaming mode: classifies a whole file ("-" reads stdin) in constant memory and prints the three stacks.
+    static void classifyFile(String path) throws IOException {
+        ClasificadorCaracteres clasificador = new ClasificadorCaracteres();
         
-        
-        for (char c : raw.toCharArray()) {
-            if (Character.isLetter(c)) {
-                stack[LETTERS].push(c);
-            } else if (Character.isDigit(c)) {
-                stack[NUMBERS].push(c);
-            } else {
-                stack[SYMBOLS].push(c);
+        if (path.equals("-")) {
+            clasificador.clasificar(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+        } else {
+            try (Reader in = Files.newBufferedReader(Path.of(path), StandardCharsets.UTF_8)) {
+                clasificador.clasificar(in);
             }
         }
+        
+        printPilaChar(clasificador.pila(LETTERS), "letras");
+        printPilaChar(clasificador.pila(NUMBERS), "dígitos");
+        printPilaChar(clasificador.pila(SYMBOLS), "signos");
     }
     
     static void printPilaChar(PilaChar stack, String type) {
@@ -42,7 +50,12 @@ public class U2Practica4 {
             return;
         }
         
-        System.out.printf("Elementos en la pila de %s:\n%s", type, stack);
+        // Render straight from the primitive stack into one buffer, instead of going through toString() and printf.
+        StringBuilder sb = new StringBuilder((int) Math.min(stack.size() * 2L, Integer.MAX_VALUE - 8));
+        stack.forEachFromTop(c -> sb.append((char) c).append('\n'));
+        
+        System.out.printf("Elementos en la pila de %s:\n", type);
+        System.out.print(sb);
         System.out.printf("\nNúmero de elementos registrados: %d\n\n", stack.size());
     }
     
@@ -57,6 +70,15 @@ public class U2Practica4 {
     }
     
     public static void main(String[] args) {
+        if (args.length > 0) {
+            try {
+                classifyFile(args[0]);
+            } catch (IOException e) {
+                System.err.println("No se pudo leer " + args[0] + ".\n Error de tipo: " + e.getClass().getSimpleName());
+            }
+            return;
+        }
+        
         BufferedReader br = new BufferedReader(new InputStreamReader(System.in));
         int option = 0;
         
@@ -1,17 +1,41 @@
 package com.korealm.U2Practica5;
 
+import com.korealm.Pilas.ChannelAppendable;
+import com.korealm.Pilas.IntStack;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.WritableByteChannel;
+
+// Two stacks sharing one array: pila 1 grows from the start and pila 2 from the end, so either one can take all the free
+// space in the middle. They are full only when the tops meet, and then the array is reallocated if the stack was created to grow.
 public class DoblePilaInt {
+    private static final int SNAPSHOT_MAGIC = 0x44504931; // "DPI1", marks the streams written by snapshot()
+    
     private int[] p;
     private int tope1;
     private int tope2;
+    private final boolean crecer;
     
     public DoblePilaInt(int n){
+        this(n, false);
+    }
+    
+    public DoblePilaInt(int n, boolean crecer){
         p = new int[n];
         tope1 = -1;
         tope2 = n;
+        this.crecer = crecer;
     }
     
     public void pushPila1(int n){
+        if(isFullPila1() && crecer) grow();
+        
         if(!isFullPila1()){
             tope1++;
             p[tope1] = n;
@@ -19,6 +43,8 @@ public class DoblePilaInt {
     }
     
     public void pushPila2(int n){
+        if(isFullPila2() && crecer) grow();
+        
         if(!isFullPila2()){
             tope2--;
             p[tope2] = n;
@@ -53,12 +79,13 @@ public class DoblePilaInt {
         return(tope2 == p.length);
     }
     
+    // Both stacks are full at the same time: there is no free cell left between the tops.
     public boolean isFullPila1(){
-        return(tope1 == (p.length / 2 - 1));
+        return(tope1 + 1 == tope2);
     }
     
     public boolean isFullPila2(){
-        return(tope1 == (p.length / 2 ));
+        return(tope1 + 1 == tope2);
     }
     
     public int sizePila1(){
@@ -69,25 +96,135 @@ public class DoblePilaInt {
         return(p.length - tope2);
     }
     
+    public int capacity(){
+        return p.length;
+    }
+    
+    // Doubles the array, keeping pila 1 at the start and moving pila 2 to the end of the new array.
+    private void grow(){
+        int[] nuevo = new int[Math.max(p.length * 2, 2)];
+        int size2 = sizePila2();
+        
+        System.arraycopy(p, 0, nuevo, 0, sizePila1());
+        System.arraycopy(p, tope2, nuevo, nuevo.length - size2, size2);
+        
+        tope2 = nuevo.length - size2;
+        p = nuevo;
+    }
+    
     public String toStringPila1() {
-        StringBuilder sb = new StringBuilder("|");
+        StringBuilder sb = new StringBuilder();
         
-        for (int i=0; i<this.sizePila1(); i++) {
-            sb.append(" ").append(p[i]).append(" ");
+        try {
+            writePila1(sb);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // A StringBuilder never throws
         }
         
-        sb.append("|\n");
         return sb.toString();
     }
     
     public String toStringPila2() {
-        StringBuilder sb = new StringBuilder("|");
+        StringBuilder sb = new StringBuilder();
         
-        for (int i = tope2; i< p.length; i++) {
-            sb.append(" ").append(p[i]).append(" ");
+        try {
+            writePila2(sb);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
         
-        sb.append("|\n");
         return sb.toString();
     }
+    
+    // Writes pila 1 and then pila 2, in the same format as toStringPila1() and toStringPila2()
+    public void writeTo(Appendable out) throws IOException {
+        writePila1(out);
+        writePila2(out);
+    }
+    
+    public void writeTo(WritableByteChannel channel) throws IOException {
+        ChannelAppendable out = new ChannelAppendable(channel);
+        writeTo(out);
+        out.flush();
+    }
+    
+    // Binary checkpoint: capacity, growth flag, and then each stack as its size followed by its numbers from the bottom to the top
+    public void snapshot(OutputStream out) throws IOException {
+        DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(out));
+        dos.writeInt(SNAPSHOT_MAGIC);
+        dos.writeInt(p.length);
+        dos.writeBoolean(crecer);
+        
+        dos.writeInt(sizePila1());
+        for (int i = 0; i <= tope1; i++) {
+            dos.writeInt(p[i]);
+        }
+        
+        dos.writeInt(sizePila2());
+        for (int i = p.length - 1; i >= tope2; i--) {
+            dos.writeInt(p[i]);
+        }
+        
+        dos.flush(); // The stream belongs to the caller, so it is not closed
+    }
+    
+    // Rebuilds the stacks written by snapshot(). The stream is read as is, so pass a buffered one.
+    public static DoblePilaInt restore(InputStream in) throws IOException {
+        DataInputStream dis = new DataInputStream(in);
+        if (dis.readInt() != SNAPSHOT_MAGIC) throw new IOException("El flujo no contiene un respaldo de DoblePilaInt");
+        
+        int length = dis.readInt();
+        boolean crecer = dis.readBoolean();
+        if (length < 0) throw new IOException("Respaldo de DoblePilaInt corrupto: capacidad " + length);
+        
+        // Both stacks are read before the array of the whole capacity is allocated, so a truncated stream fails first
+        IntStack pila1 = readInts(dis);
+        IntStack pila2 = readInts(dis);
+        int size1 = pila1.size(), size2 = pila2.size();
+        
+        DoblePilaInt pila = new DoblePilaInt(length, crecer);
+        for (int i = 0; i < size1; i++) {
+            pila.pushPila1(pila1.get(i));
+        }
+        for (int i = 0; i < size2; i++) {
+            pila.pushPila2(pila2.get(i));
+        }
+        
+        if (pila.sizePila1() != size1 || pila.sizePila2() != size2) throw new IOException("Respaldo de DoblePilaInt corrupto");
+        
+        return pila;
+    }
+    
+    // A count and that many numbers. The count is not trusted for the allocation: the stack starts at most as big as the bytes available and grows
+    private static IntStack readInts(DataInputStream dis) throws IOException {
+        int n = dis.readInt();
+        if (n < 0) throw new IOException("Respaldo de DoblePilaInt corrupto: " + n + " números");
+        
+        IntStack numeros = new IntStack(Math.min(n, dis.available() / Integer.BYTES));
+        for (int i = 0; i < n; i++) {
+            numeros.push(dis.readInt());
+        }
+        
+        return numeros;
+    }
+    
+    private void writePila1(Appendable out) throws IOException {
+        out.append('|');
+        
+        for (int i = 0; i <= tope1; i++) {
+            out.append(' ').append(String.valueOf(p[i])).append(' ');
+        }
+        
+        out.append("|\n");
+    }
+    
+    private void writePila2(Appendable out) throws IOException {
+        out.append('|');
+        
+        for (int i = tope2; i < p.length; i++) {
+            out.append(' ').append(String.valueOf(p[i])).append(' ');
+        }
+        
+        out.append("|\n");
+    }
 }
@@ -67,7 +67,7 @@ public class U2Practica5 {
     }
     
     public static void main(String[] args) {
-        final DoblePilaInt stack = new DoblePilaInt(50);
+        final DoblePilaInt stack = new DoblePilaInt(50, true); // Grows when both stacks meet, so no number is lost however skewed the input is
         final BufferedReader br = new BufferedReader(new InputStreamReader(System.in));
         int option = 0;
         
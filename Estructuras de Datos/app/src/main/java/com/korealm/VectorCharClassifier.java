@@ -0,0 +1,59 @@
+package com.korealm;
+
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/*
+ * Vector API path of CharClassifier.classify(). Only CharClassifier loads this class, and only when the
+ * jdk.incubator.vector module is present.
+ *
+ * Each iteration loads one vector of chars as shorts and works out the ASCII categories with a few lane-wise compares.
+ * The compare masks become the bits of the result directly. Lanes holding a char >= 0x80 are then looked up in the
+ * CharClassifier table one by one, so the result always matches CharClassifier.category().
+ */
+final class VectorCharClassifier implements CharClassifier.Bulk {
+    private static final VectorSpecies<Short> SPECIES = ShortVector.SPECIES_PREFERRED;
+
+    @Override
+    public void classify(char[] src, int off, int len, long[] letters, long[] digits, long[] spaces) {
+        int lanes = SPECIES.length();   // 8, 16 or 32: always divides 64, so a chunk never straddles two mask words
+        int bound = SPECIES.loopBound(len);
+        int i = 0;
+
+        for (; i < bound; i += lanes) {
+            ShortVector v = ShortVector.fromCharArray(SPECIES, src, off + i);
+
+            ShortVector lower = v.or((short) 0x20);     // 'A'..'Z' -> 'a'..'z'
+            VectorMask<Short> letter = lower.compare(VectorOperators.GE, (short) 'a').and(lower.compare(VectorOperators.LE, (short) 'z'));
+            VectorMask<Short> digit = v.compare(VectorOperators.GE, (short) '0').and(v.compare(VectorOperators.LE, (short) '9'));
+            VectorMask<Short> space = v.compare(VectorOperators.EQ, (short) ' ')
+                    .or(v.compare(VectorOperators.GE, (short) '\t').and(v.compare(VectorOperators.LE, (short) '\r')));
+
+            long letterBits = letter.toLong(), digitBits = digit.toLong(), spaceBits = space.toLong();
+
+            // None of the compares above match a char >= 0x80, so those lanes are looked up one by one and added in
+            long nonAscii = v.and((short) 0xFF80).compare(VectorOperators.NE, (short) 0).toLong();
+            while (nonAscii != 0) {
+                int lane = Long.numberOfTrailingZeros(nonAscii);
+                long bit = 1L << lane;
+
+                switch (CharClassifier.category(src[off + i + lane])) {
+                    case CharClassifier.LETTER -> letterBits |= bit;
+                    case CharClassifier.DIGIT -> digitBits |= bit;
+                    default -> { }      // SPACE only holds ASCII chars
+                }
+
+                nonAscii &= nonAscii - 1;
+            }
+
+            int word = i >>> 6, shift = i & 63;
+            letters[word] |= letterBits << shift;
+            digits[word] |= digitBits << shift;
+            spaces[word] |= spaceBits << shift;
+        }
+
+        CharClassifier.classifyScalar(src, off, len, letters, digits, spaces, i);
+    }
+}
@@ -0,0 +1,47 @@
+package com.korealm.Pilas;
+
+import com.korealm.U2Practica4.PilaChar;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChannelAppendableTest {
+    private static final String EMOJI = "😀";    // U+1F600, outside the BMP, so it takes a surrogate pair
+
+    @Test void supplementaryCharacterInOrderIsEncoded() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ChannelAppendable out = new ChannelAppendable(Channels.newChannel(bytes));
+
+        out.append("a").append(EMOJI).append('b');
+        out.flush();
+
+        assertEquals("a" + EMOJI + "b", bytes.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test void reversedSurrogatePairIsReplacedInsteadOfFailing() throws IOException {
+        PilaChar pila = new PilaChar();
+        for (char c : ("a" + EMOJI).toCharArray()) {
+            pila.push(c);
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        pila.writeTo(Channels.newChannel(bytes));
+
+        assertEquals("?\n?\na\n", bytes.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test void nullIsAppendedAsText() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ChannelAppendable out = new ChannelAppendable(Channels.newChannel(bytes));
+
+        out.append(null).append(null, 0, 2);
+        out.flush();
+
+        assertEquals("nullnu", bytes.toString(StandardCharsets.UTF_8));
+    }
+}
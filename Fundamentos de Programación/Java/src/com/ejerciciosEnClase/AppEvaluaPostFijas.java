@@ -2,62 +2,162 @@ package ejerciciosEnClase;
 
 /*
  * Esta aplicación permitirá leer una expresión posfija y evaluarla para mostrar su resultado.
- * Se asume que las expresiones posfijas leídas son correctas.
+ * Se asume que las expresiones posfijas leídas son correctas; si una no lo es, se informa en la salida de errores y se
+ * continúa con la siguiente.
+ *
+ * Uso: AppEvaluaPostFijas [opciones] [archivo]                   (por defecto lee expresionesPostfijas.txt del directorio actual)
+ *      AppEvaluaPostFijas [opciones] --lotes archivo [hilos]     evalúa el archivo en paralelo con EvaluadorPorLotes
+ *      AppEvaluaPostFijas [opciones] --flujo [entrada]           evalúa sin fin lo que llega por la entrada estándar (o "-")
+ *                                                                o por un pipe con nombre, con ServicioPostfijas
+ *
+ * Opciones:
+ *      --aritmetica=entera|larga|grande    ver Aritmetica; por defecto grande, que siempre da el resultado exacto
+ *      --infija                            las líneas son expresiones infijas como "(4 - 2) * 3 ^ 2" (ver ConvertidorInfijo)
+ *      --metricas=archivo                  con --flujo, agrega las métricas a este archivo en lugar de la salida de errores
+ *      --intervalo=segundos                con --flujo, cada cuánto se escriben las métricas; por defecto 10
  */
 
-import java.util.Deque;
-import java.util.ArrayDeque;
-import java.io.BufferedReader;
-import java.io.FileReader;
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
 
 /*
- * Si usaramos la interfaz Deque, podemos usar distintas clases para implementarlo. Por ejemplo, podemos usar ArrayDeque o LinkedLista.
- * ArrayDeque se comporta con almacenamiento estático, mientras ArrayList lo hace con almacenamiento dinámico.
+ * Antes cada operando se guardaba como String en un Deque<String> y cada operador hacía dos Integer.parseInt y un
+ * Integer.toString. Ahora la evaluación la hace EvaluadorPostfijo, que convierte la línea en tokens una sola vez y trabaja
+ * sobre una pila de números, y las líneas ya no pasan por readLine(): CursorPostfijo lee los elementos directo de los bytes
+ * del archivo, y los resultados se escriben en bytes.
  */
 
 public class AppEvaluaPostFijas {
+	private static final int LECTURA = 1 << 16;
+	private static final int SALIDA = 1 << 16;
+	private static final int BLOQUES_FLUJO = 16;	// con --flujo, a lo más 16 bloques de 64 KB de entrada pendientes
+
 	public static void main(String[] args) throws IOException {
-		Deque<String> pila = new ArrayDeque<>();
-
-		String operadores = "+-*/%^";
-		BufferedReader br = new BufferedReader(new FileReader("D:\\Workspaces\\Universidad\\Fundamentos de Programación\\Aprendiendo_Java\\ejerciciosEnClase\\expresionesPostfijas.txt"));
-
-		// El método ready() de la clase BufferedReader en Java se utiliza para verificar si el flujo de entrada está listo para ser leído, es decir, si hay datos disponibles para ser leídos sin bloquear el programa. Retorna true si hay datos disponibles para ser leídos, y false si no hay datos o si el flujo de entrada está cerrado.
-		while (br.ready()) {
-			String[] partesExpresion = br.readLine().split(",");
-
-			// Evaluar expresión
-			for (String elemento:partesExpresion) {
-				if (operadores.contains(elemento)) {
-					int operando2 = Integer.parseInt(pila.pop());
-					int operando1 = Integer.parseInt(pila.pop());
-					switch(elemento) {
-						case "+":
-							pila.push(Integer.toString(operando1+operando2)); // La Clase toString recibe un entero y lo convierte en un string.
-							break;
-						case "-":
-							pila.push(Integer.toString(operando1-operando2));
-							break;
-						case "*":
-							pila.push(Integer.toString(operando1*operando2));	
-							break;
-						case "/":
-							pila.push(Integer.toString(operando1/operando2));
-							break;
-						case "%":
-							pila.push(Integer.toString(operando1%operando2));
-							break;
-						case "^":
-							pila.push(Integer.toString((int) Math.pow(operando1,operando2)));
-							break;
-					}
-				} else {
-					pila.push(elemento);
+		Aritmetica aritmetica = Aritmetica.GRANDE;
+		boolean infija = false;
+		String archivoMetricas = null;
+		long segundosIntervalo = 10;
+		int primero = 0;
+
+		for (; primero < args.length; primero++) {
+			if (args[primero].equals("--infija")) {
+				infija = true;
+			} else if (args[primero].startsWith("--aritmetica=")) {
+				try {
+					aritmetica = Aritmetica.valueOf(args[primero].substring("--aritmetica=".length()).toUpperCase());
+				} catch (IllegalArgumentException e) {
+					System.err.println("Aritmética desconocida: " + args[primero] + " (usa entera, larga o grande)");
+					return;
+				}
+			} else if (args[primero].startsWith("--metricas=")) {
+				archivoMetricas = args[primero].substring("--metricas=".length());
+			} else if (args[primero].startsWith("--intervalo=")) {
+				segundosIntervalo = Long.parseLong(args[primero].substring("--intervalo=".length()));
+			} else {
+				break;
+			}
+		}
+
+		if (primero < args.length && args[primero].equals("--flujo")) {
+			boolean entradaEstandar = (args.length <= primero + 1 || args[primero + 1].equals("-"));
+			InputStream entrada = entradaEstandar ? new FileInputStream(FileDescriptor.in) : new FileInputStream(args[primero + 1]);
+			PrintStream metricas = (archivoMetricas == null) ? System.err : new PrintStream(new FileOutputStream(archivoMetricas, true), true);
+			FileChannel salida = new FileOutputStream(FileDescriptor.out).getChannel();
+
+			try (entrada) {
+				new ServicioPostfijas(aritmetica, infija, BLOQUES_FLUJO, Duration.ofSeconds(segundosIntervalo), metricas).ejecutar(entrada, salida, System.err);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} finally {
+				if (metricas != System.err) metricas.close();
+			}
+			return;
+		}
+
+		if (primero < args.length && args[primero].equals("--lotes")) {
+			if (args.length < primero + 2) {
+				System.err.println("Uso: AppEvaluaPostFijas [--aritmetica=...] [--infija] --lotes archivo [hilos]");
+				return;
+			}
+
+			int hilos = (args.length > primero + 2) ? Integer.parseInt(args[primero + 2]) : Runtime.getRuntime().availableProcessors();
+			// Se escribe directo al descriptor de la salida estándar, sin pasar por System.out
+			FileChannel salida = new FileOutputStream(FileDescriptor.out).getChannel();
+			new EvaluadorPorLotes(hilos, aritmetica, infija).evaluar(Path.of(args[primero + 1]), salida, System.err);
+			return;
+		}
+
+		String archivo = (primero < args.length) ? args[primero] : "expresionesPostfijas.txt";
+		FileChannel salida = new FileOutputStream(FileDescriptor.out).getChannel();
+
+		try (InputStream entrada = new FileInputStream(archivo)) {
+			evaluar(entrada, salida, System.err, new EvaluadorLineas(aritmetica, infija));
+		}
+	}
+
+	/*
+	 * Lee la entrada por bloques de bytes y evalúa cada línea completa en su lugar dentro del bloque, sin readLine() ni un
+	 * String por línea. Los resultados se juntan en bytes y se escriben cuando pasan de SALIDA bytes, y también antes de
+	 * informar un error, para que el error aparezca después de los resultados de las líneas anteriores.
+	 * Devuelve cuántas expresiones se evaluaron sin errores.
+	 */
+	static long evaluar(InputStream entrada, WritableByteChannel salida, PrintStream errores, EvaluadorLineas evaluador) throws IOException {
+		byte[] buffer = new byte[LECTURA];
+		SalidaBytes resultados = new SalidaBytes(SALIDA + 64);
+		int llenos = 0;
+		int revisados = 0;	// los bytes ya revisados en busca de '\n'
+		long numLinea = 0;
+		long evaluadas = 0;
+
+		try {
+			boolean fin = false;
+			while (!fin) {
+				if (llenos == buffer.length) buffer = Arrays.copyOf(buffer, buffer.length * 2);	// una línea más larga que el buffer
+
+				int leidos = entrada.read(buffer, llenos, buffer.length - llenos);
+				fin = (leidos < 0);
+				if (!fin) llenos += leidos;
+
+				int inicio = 0;
+				for (int i = revisados; i < llenos; i++) {
+					if (buffer[i] != '\n') continue;
+
+					if (evaluarLinea(evaluador, buffer, inicio, i, ++numLinea, resultados, salida, errores)) evaluadas++;
+					inicio = i + 1;
 				}
+				// La última línea puede no terminar en '\n'
+				if (fin && inicio < llenos && evaluarLinea(evaluador, buffer, inicio, llenos, ++numLinea, resultados, salida, errores)) evaluadas++;
+
+				// Lo que queda es el principio de una línea incompleta: se mueve al inicio del buffer
+				System.arraycopy(buffer, inicio, buffer, 0, llenos - inicio);
+				llenos -= inicio;
+				revisados = llenos;
+
+				if (resultados.tamano >= SALIDA) resultados.vaciar(salida);
 			}
-			System.out.println(pila.pop());
+		} finally {
+			resultados.vaciar(salida);
+		}
+
+		return evaluadas;
+	}
+
+	private static boolean evaluarLinea(EvaluadorLineas evaluador, byte[] buffer, int inicio, int fin, long numLinea, SalidaBytes resultados, WritableByteChannel salida, PrintStream errores) throws IOException {
+		try {
+			return evaluador.evaluar(buffer, inicio, fin, resultados);
+		} catch (IllegalArgumentException | ArithmeticException e) {
+			resultados.vaciar(salida);
+			errores.println("Línea " + numLinea + ": " + e.getMessage());
+			return false;
 		}
-		br.close();
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,17 @@
+package ejerciciosEnClase;
+
+/*
+ * Cómo calcula EvaluadorPostfijo. Ningún modo da un resultado equivocado en silencio: o el resultado es exacto, o se lanza
+ * una ArithmeticException.
+ */
+public enum Aritmetica {
+	// int con Math.*Exact: si una operación se desborda, lanza ArithmeticException. Es el modo más rápido.
+	ENTERA,
+
+	// Igual, pero con long
+	LARGA,
+
+	// Calcula con long y solo si algo se desborda vuelve a calcular esa expresión con BigInteger, así que el caso común
+	// cuesta lo mismo que LARGA y el resultado siempre es exacto
+	GRANDE
+}
@@ -0,0 +1,479 @@
+package ejerciciosEnClase;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Random;
+import java.util.function.LongSupplier;
+
+import com.sun.management.ThreadMXBean;
+
+/*
+ * Compara cuántas expresiones por segundo evalúa la versión anterior de AppEvaluaPostFijas (Deque<String>) contra
+ * EvaluadorPostfijo, las mismas expresiones escritas en infijo (ConvertidorInfijo más la evaluación) contra la evaluación
+ * posfija, leer las líneas desde bytes con CursorPostfijo contra crear un String por línea (midiendo también los bytes que
+ * asigna cada expresión), y volver a leer expresiones con variables contra ExpresionCompilada. Los corpus se generan en
+ * memoria para que la lectura del archivo no cuente.
+ *
+ * Con --lotes mide en cambio EvaluadorPorLotes sobre un archivo (si no existe, lo genera con el número de líneas dado)
+ * con 1, 2, 4... hilos hasta el número de procesadores, descartando la salida.
+ *
+ * Uso: BenchmarkPostfijas [líneas]                     (por defecto 1000000)
+ *      BenchmarkPostfijas --lotes archivo [líneas]     (por defecto 50000000 líneas, unos 1.1 GB)
+ */
+public class BenchmarkPostfijas {
+	private static final int RONDAS_CALENTAMIENTO = 3;
+	private static final int RONDAS = 5;
+	private static final int FORMAS = 100;
+	private static final String[] VARIABLES = { "a", "b", "c", "d" };
+
+	private static double mejorTasa;	// expresiones/s de la mejor ronda de la última llamada a medir
+
+	public static void main(String[] args) throws IOException {
+		if (args.length > 1 && args[0].equals("--lotes")) {
+			lotes(Path.of(args[1]), (args.length > 2) ? Long.parseLong(args[2]) : 50_000_000L);
+			return;
+		}
+
+		int lineas = (args.length > 0) ? Integer.parseInt(args[0]) : 1_000_000;
+
+		System.out.println("== Expresiones con números ==");
+		numeros(lineas);
+
+		System.out.println();
+		System.out.println("== Expresiones infijas ==");
+		infijas(lineas);
+
+		System.out.println();
+		System.out.println("== Líneas en bytes ==");
+		bytes(lineas);
+
+		System.out.println();
+		System.out.println("== Expresiones con variables ==");
+		variables(lineas);
+	}
+
+	// Vuelve a leer cada línea: la versión anterior contra EvaluadorPostfijo
+	static void numeros(int lineas) {
+		String[] corpus = generarCorpus(lineas, 42);
+		EvaluadorPostfijo evaluador = new EvaluadorPostfijo();
+
+		long esperado = medir("anterior (Deque<String>)", lineas, () -> {
+			long suma = 0;
+			for (String linea : corpus) suma += anterior(linea);
+			return suma;
+		});
+		long obtenido = medir("EvaluadorPostfijo", lineas, () -> {
+			long suma = 0;
+			for (String linea : corpus) suma += evaluador.evaluar(linea);
+			return suma;
+		});
+		comparar(esperado, obtenido);
+
+		// Lo que cuestan los modos más anchos en el caso común, en el que nada se desborda
+		for (Aritmetica aritmetica : new Aritmetica[] { Aritmetica.LARGA, Aritmetica.GRANDE }) {
+			EvaluadorPostfijo ancho = new EvaluadorPostfijo(aritmetica);
+			obtenido = medir("EvaluadorPostfijo " + aritmetica, lineas, () -> {
+				long suma = 0;
+				for (String linea : corpus) {
+					ancho.tokenizar(linea);
+					suma += ancho.calcular();
+				}
+				return suma;
+			});
+			comparar(esperado, obtenido);
+		}
+	}
+
+	// El mismo corpus escrito en infijo: convertir y evaluar contra solo evaluar el texto posfijo
+	static void infijas(int lineas) {
+		String[] corpus = generarCorpus(lineas, 42);
+		String[] infijas = new String[lineas];
+		for (int i = 0; i < lineas; i++) infijas[i] = aInfija(corpus[i]);
+
+		EvaluadorPostfijo evaluador = new EvaluadorPostfijo();
+		long esperado = medir("posfija", lineas, () -> {
+			long suma = 0;
+			for (String linea : corpus) suma += evaluador.evaluar(linea);
+			return suma;
+		});
+		double tasaPosfija = mejorTasa;
+
+		ConvertidorInfijo convertidor = new ConvertidorInfijo();
+		long obtenido = medir("infija (conversión + evaluación)", lineas, () -> {
+			long suma = 0;
+			for (String linea : infijas) {
+				convertidor.convertir(linea, evaluador);
+				suma += evaluador.evaluar();
+			}
+			return suma;
+		});
+		comparar(esperado, obtenido);
+
+		System.out.printf("infija / posfija: %.2fx el tiempo%n", tasaPosfija / mejorTasa);
+	}
+
+	/*
+	 * El corpus como el contenido de un archivo: un String por línea (lo que hace readLine) contra CursorPostfijo sobre los
+	 * bytes. Además de la velocidad se mide cuánta memoria asigna el hilo por expresión en una ronda ya caliente; con el
+	 * cursor debe ser 0.
+	 */
+	static void bytes(int lineas) {
+		byte[] archivo = String.join("\n", generarCorpus(lineas, 42)).concat("\n").getBytes(StandardCharsets.US_ASCII);
+
+		EvaluadorPostfijo evaluador = new EvaluadorPostfijo();
+		LongSupplier conString = () -> {
+			long suma = 0;
+			for (int inicio = 0, fin; inicio < archivo.length; inicio = fin + 1) {
+				fin = inicio;
+				while (archivo[fin] != '\n') fin++;
+				suma += evaluador.evaluar(new String(archivo, inicio, fin - inicio, StandardCharsets.UTF_8));
+			}
+			return suma;
+		};
+		medir("String por línea", lineas, conString);
+		System.out.printf("%-32s %.1f bytes asignados por expresión%n", "String por línea", bytesPorExpresion(lineas, conString));
+
+		EvaluadorLineas lineasEnBytes = new EvaluadorLineas(Aritmetica.ENTERA, false);
+		SalidaBytes salida = new SalidaBytes(64);
+		LongSupplier conCursor = () -> {
+			long suma = 0;
+			for (int inicio = 0, fin; inicio < archivo.length; inicio = fin + 1) {
+				fin = inicio;
+				while (archivo[fin] != '\n') fin++;
+				salida.tamano = 0;
+				lineasEnBytes.evaluar(archivo, inicio, fin, salida);
+				suma += salida.tamano;	// los resultados ya vienen escritos; se suma su largo en bytes
+			}
+			return suma;
+		};
+		medir("CursorPostfijo", lineas, conCursor);
+		System.out.printf("%-32s %.1f bytes asignados por expresión%n", "CursorPostfijo", bytesPorExpresion(lineas, conCursor));
+
+		// Como la ronda con cursor suma largos de texto, se compara contra el texto de los resultados de la otra versión
+		long largoEsperado = 0;
+		for (int inicio = 0, fin; inicio < archivo.length; inicio = fin + 1) {
+			fin = inicio;
+			while (archivo[fin] != '\n') fin++;
+			largoEsperado += Long.toString(evaluador.evaluar(new String(archivo, inicio, fin - inicio, StandardCharsets.UTF_8))).length() + 1;
+		}
+		comparar(largoEsperado, conCursor.getAsLong());
+	}
+
+	// Bytes que asigna el hilo actual en una ronda más, dividido entre las expresiones de la ronda
+	static double bytesPorExpresion(int expresiones, LongSupplier ronda) {
+		ThreadMXBean hilos = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+		long id = Thread.currentThread().threadId();
+
+		long antes = hilos.getThreadAllocatedBytes(id);
+		ronda.getAsLong();
+		return (double) (hilos.getThreadAllocatedBytes(id) - antes) / expresiones;
+	}
+
+	/*
+	 * Pocas formas de expresión evaluadas muchas veces con distintos valores: escribir los valores en el texto y volver a
+	 * leerlo, contra compilar la forma una vez (con el caché) y evaluarla fila por fila o por lotes.
+	 */
+	static void variables(int lineas) {
+		String[] formas = generarFormas(FORMAS, 7);
+		Random random = new Random(11);
+
+		int[] formaDe = new int[lineas];
+		int[][] valores = new int[lineas][VARIABLES.length];
+		String[] textos = new String[lineas];
+		for (int i = 0; i < lineas; i++) {
+			formaDe[i] = random.nextInt(FORMAS);
+			for (int v = 0; v < VARIABLES.length; v++) valores[i][v] = random.nextInt(100);
+			textos[i] = sustituir(formas[formaDe[i]], valores[i]);
+		}
+
+		// Los registros de cada forma siguen el orden en que aparecen sus variables, así que las filas se acomodan a ese orden
+		CompiladorPostfijo compilador = new CompiladorPostfijo(FORMAS);
+		int[][] filas = new int[lineas][];
+		int[][][] lotes = new int[FORMAS][][];
+		int[] tamanoLote = new int[FORMAS];
+		for (int i = 0; i < lineas; i++) tamanoLote[formaDe[i]]++;
+		for (int f = 0; f < FORMAS; f++) lotes[f] = new int[tamanoLote[f]][];
+		int[] llenos = new int[FORMAS];
+		for (int i = 0; i < lineas; i++) {
+			ExpresionCompilada compilada = compilador.compilar(formas[formaDe[i]]);
+			String[] nombres = compilada.variables();
+			filas[i] = new int[nombres.length];
+			for (int r = 0; r < nombres.length; r++) filas[i][r] = valores[i][nombres[r].charAt(0) - 'a'];
+			lotes[formaDe[i]][llenos[formaDe[i]]++] = filas[i];
+		}
+
+		EvaluadorPostfijo evaluador = new EvaluadorPostfijo();
+		long esperado = medir("texto con valores", lineas, () -> {
+			long suma = 0;
+			for (String texto : textos) suma += evaluador.evaluar(texto);
+			return suma;
+		});
+		long obtenido = medir("compilada, evaluate", lineas, () -> {
+			long suma = 0;
+			for (int i = 0; i < lineas; i++) suma += compilador.compilar(formas[formaDe[i]]).evaluate(filas[i]);
+			return suma;
+		});
+		comparar(esperado, obtenido);
+
+		obtenido = medir("compilada, evaluateBatch", lineas, () -> {
+			long suma = 0;
+			for (int f = 0; f < FORMAS; f++) {
+				for (int resultado : compilador.compilar(formas[f]).evaluateBatch(lotes[f])) suma += resultado;
+			}
+			return suma;
+		});
+		comparar(esperado, obtenido);
+	}
+
+	static void lotes(Path archivo, long lineas) throws IOException {
+		if (Files.notExists(archivo)) {
+			System.out.println("Generando " + lineas + " líneas en " + archivo + "...");
+			escribirCorpus(archivo, lineas);
+		}
+
+		double megabytes = Files.size(archivo) / 1e6;
+		WritableByteChannel descartar = Channels.newChannel(OutputStream.nullOutputStream());
+		int procesadores = Runtime.getRuntime().availableProcessors();
+
+		for (int hilos = 1; ; hilos = Math.min(hilos * 2, procesadores)) {
+			EvaluadorPorLotes evaluador = new EvaluadorPorLotes(hilos);
+			evaluador.evaluar(archivo, descartar, System.err);	// calentamiento, y el archivo queda en el caché del sistema
+
+			long inicio = System.nanoTime();
+			long evaluadas = evaluador.evaluar(archivo, descartar, System.err);
+			double segundos = (System.nanoTime() - inicio) / 1e9;
+
+			System.out.printf("%2d hilos: %,.0f expresiones/s, %,.0f MB/s%n", hilos, evaluadas / segundos, megabytes / segundos);
+			if (hilos == procesadores) break;
+		}
+	}
+
+	// Escribe el corpus por partes, para poder generar archivos más grandes que la memoria
+	static void escribirCorpus(Path archivo, long lineas) throws IOException {
+		try (BufferedWriter salida = Files.newBufferedWriter(archivo)) {
+			long semilla = 42;
+			for (long escritas = 0; escritas < lineas; ) {
+				int parte = (int) Math.min(1_000_000, lineas - escritas);
+				for (String linea : generarCorpus(parte, semilla++)) {
+					salida.write(linea);
+					salida.newLine();
+				}
+				escritas += parte;
+			}
+		}
+	}
+
+	// Corre varias rondas y devuelve la suma de los resultados de la última, que sirve para comparar versiones
+	static long medir(String nombre, int expresiones, LongSupplier ronda) {
+		long suma = 0;
+		mejorTasa = 0;
+
+		for (int i = 0; i < RONDAS_CALENTAMIENTO + RONDAS; i++) {
+			long inicio = System.nanoTime();
+			suma = ronda.getAsLong();
+			long nanos = System.nanoTime() - inicio;
+
+			if (i >= RONDAS_CALENTAMIENTO) {
+				double tasa = expresiones * 1e9 / nanos;
+				mejorTasa = Math.max(mejorTasa, tasa);
+				System.out.printf("%-32s ronda %d: %,.0f expresiones/s%n", nombre, i - RONDAS_CALENTAMIENTO + 1, tasa);
+			}
+		}
+
+		return suma;
+	}
+
+	static void comparar(long esperado, long obtenido) {
+		if (esperado != obtenido) System.err.println("¡Los resultados no coinciden! " + esperado + " != " + obtenido);
+	}
+
+	/*
+	 * Expresiones válidas de 2 a 12 operandos entre 0 y 99, con anidamiento. Los divisores y los exponentes siempre son
+	 * literales (1 a 9 y 0 a 3), así que nunca hay división entre cero. Mientras se genera se lleva una cota del valor
+	 * absoluto, y una operación que podría pasar de Integer.MAX_VALUE se cambia por un módulo: así todas las versiones del
+	 * evaluador, incluida la anterior con Math.pow, dan los mismos resultados.
+	 */
+	static String[] generarCorpus(int lineas, long semilla) {
+		return generar(lineas, semilla, false);
+	}
+
+	// Como generarCorpus, pero los operandos que no son divisores ni exponentes pueden ser las variables a, b, c y d
+	static String[] generarFormas(int formas, long semilla) {
+		return generar(formas, semilla, true);
+	}
+
+	private static String[] generar(int lineas, long semilla, boolean conVariables) {
+		Random random = new Random(semilla);
+		String[] corpus = new String[lineas];
+		StringBuilder sb = new StringBuilder();
+		StringBuilder derecho = new StringBuilder();
+
+		for (int i = 0; i < lineas; i++) {
+			sb.setLength(0);
+			double cota = operando(sb, random, conVariables);
+
+			int operaciones = 1 + random.nextInt(6);
+			for (int j = 0; j < operaciones; j++) {
+				char operador = "+-*/%^".charAt(random.nextInt(6));
+				derecho.setLength(0);
+				double cotaDerecho;
+
+				if (operador == '/' || operador == '%') {
+					cotaDerecho = divisor(derecho, random);
+				} else if (operador == '^') {
+					cotaDerecho = random.nextInt(4);
+					derecho.append((int) cotaDerecho);
+				} else if (random.nextBoolean()) {
+					double cota1 = operando(derecho, random, conVariables);
+					double cota2 = operando(derecho.append(','), random, conVariables);
+					char interno = "+-*".charAt(random.nextInt(3));
+					derecho.append(',').append(interno);
+					cotaDerecho = (interno == '*') ? cota1 * cota2 : cota1 + cota2;
+				} else {
+					cotaDerecho = operando(derecho, random, conVariables);
+				}
+
+				double nueva = switch (operador) {
+					case '+', '-' -> cota + cotaDerecho;
+					case '*' -> cota * cotaDerecho;
+					case '/' -> cota;
+					case '%' -> Math.min(cota, cotaDerecho - 1);
+					default -> Math.pow(cota, cotaDerecho);
+				};
+
+				if (nueva > Integer.MAX_VALUE) {
+					operador = '%';
+					derecho.setLength(0);
+					nueva = Math.min(cota, divisor(derecho, random) - 1);
+				}
+
+				sb.append(',').append(derecho).append(',').append(operador);
+				cota = nueva;
+			}
+
+			corpus[i] = sb.toString();
+		}
+
+		return corpus;
+	}
+
+	// Escribe un operando y devuelve la cota de su valor absoluto
+	private static double operando(StringBuilder sb, Random random, boolean conVariables) {
+		if (conVariables && random.nextBoolean()) {
+			sb.append(VARIABLES[random.nextInt(VARIABLES.length)]);
+		} else {
+			sb.append(random.nextInt(100));
+		}
+
+		return 99;
+	}
+
+	private static int divisor(StringBuilder sb, Random random) {
+		int divisor = 1 + random.nextInt(9);
+		sb.append(divisor);
+
+		return divisor;
+	}
+
+	/*
+	 * Escribe una expresión posfija del corpus en infijo, con espacios alrededor de los operadores y solo los paréntesis
+	 * necesarios: un operando lleva paréntesis si su operador tiene menor precedencia, o la misma y queda del lado que no
+	 * asocia (el derecho en + - * / %, el izquierdo en ^).
+	 */
+	static String aInfija(String postfija) {
+		Deque<String> textos = new ArrayDeque<>();
+		Deque<Integer> precedencias = new ArrayDeque<>();
+
+		for (String elemento : postfija.split(",")) {
+			if (elemento.length() == 1 && EvaluadorPostfijo.esOperador(elemento.charAt(0))) {
+				char operador = elemento.charAt(0);
+				int precedencia = switch (operador) {
+					case '+', '-' -> 1;
+					case '*', '/', '%' -> 2;
+					default -> 3;
+				};
+
+				String derecho = textos.pop();
+				int precedenciaDerecho = precedencias.pop();
+				String izquierdo = textos.pop();
+				int precedenciaIzquierdo = precedencias.pop();
+
+				if (precedenciaIzquierdo < precedencia || (precedenciaIzquierdo == precedencia && operador == '^')) izquierdo = "(" + izquierdo + ")";
+				if (precedenciaDerecho < precedencia || (precedenciaDerecho == precedencia && operador != '^')) derecho = "(" + derecho + ")";
+
+				textos.push(izquierdo + " " + operador + " " + derecho);
+				precedencias.push(precedencia);
+			} else {
+				textos.push(elemento);
+				precedencias.push(Integer.MAX_VALUE);
+			}
+		}
+
+		return textos.pop();
+	}
+
+	// Escribe el valor de cada variable en su lugar; valores[0] es a, valores[1] es b, etc.
+	private static String sustituir(String forma, int[] valores) {
+		StringBuilder sb = new StringBuilder(forma.length() + 16);
+
+		for (String elemento : forma.split(",")) {
+			if (sb.length() > 0) sb.append(',');
+
+			char c = elemento.charAt(0);
+			if (elemento.length() == 1 && c >= 'a' && c <= 'd') {
+				sb.append(valores[c - 'a']);
+			} else {
+				sb.append(elemento);
+			}
+		}
+
+		return sb.toString();
+	}
+
+	// La evaluación como la hacía AppEvaluaPostFijas antes de EvaluadorPostfijo
+	static int anterior(String linea) {
+		Deque<String> pila = new ArrayDeque<>();
+		String operadores = "+-*/%^";
+		String[] partesExpresion = linea.split(",");
+
+		for (String elemento:partesExpresion) {
+			if (operadores.contains(elemento)) {
+				int operando2 = Integer.parseInt(pila.pop());
+				int operando1 = Integer.parseInt(pila.pop());
+				switch(elemento) {
+					case "+":
+						pila.push(Integer.toString(operando1+operando2));
+						break;
+					case "-":
+						pila.push(Integer.toString(operando1-operando2));
+						break;
+					case "*":
+						pila.push(Integer.toString(operando1*operando2));
+						break;
+					case "/":
+						pila.push(Integer.toString(operando1/operando2));
+						break;
+					case "%":
+						pila.push(Integer.toString(operando1%operando2));
+						break;
+					case "^":
+						pila.push(Integer.toString((int) Math.pow(operando1,operando2)));
+						break;
+				}
+			} else {
+				pila.push(elemento);
+			}
+		}
+
+		return Integer.parseInt(pila.pop());
+	}
+}
@@ -0,0 +1,69 @@
+package ejerciciosEnClase;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/*
+ * Compila expresiones posfijas con variables y guarda las últimas que se usaron, con el texto de la expresión como llave.
+ * Cuando el caché se llena, se descarta la expresión que lleva más tiempo sin pedirse (LRU), así que las formas que se
+ * evalúan una y otra vez se compilan una sola vez.
+ *
+ * Se puede usar desde varios hilos. La compilación se hace fuera del candado, así que dos hilos que piden la misma
+ * expresión nueva al mismo tiempo pueden compilarla los dos; el resultado es el mismo y se queda una de las dos.
+ */
+public class CompiladorPostfijo {
+	private final Map<String, ExpresionCompilada> cache;
+	private long aciertos, fallos;
+
+	public CompiladorPostfijo(int capacidad) {
+		if (capacidad <= 0) throw new IllegalArgumentException("La capacidad del caché debe ser positiva: " + capacidad);
+
+		// Con accessOrder = true, cada get() mueve la entrada al final y la más antigua queda al principio
+		cache = new LinkedHashMap<>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, ExpresionCompilada> eldest) {
+				return size() > capacidad;
+			}
+		};
+	}
+
+	public ExpresionCompilada compilar(String expresion) {
+		synchronized (cache) {
+			ExpresionCompilada compilada = cache.get(expresion);
+			if (compilada != null) {
+				aciertos++;
+				return compilada;
+			}
+			fallos++;
+		}
+
+		ExpresionCompilada compilada = ExpresionCompilada.compilar(expresion);
+
+		synchronized (cache) {
+			ExpresionCompilada anterior = cache.putIfAbsent(expresion, compilada);
+			return (anterior != null) ? anterior : compilada;
+		}
+	}
+
+	public int evaluate(String expresion, int[] bindings) {
+		return compilar(expresion).evaluate(bindings);
+	}
+
+	public int tamano() {
+		synchronized (cache) {
+			return cache.size();
+		}
+	}
+
+	public long aciertos() {
+		synchronized (cache) {
+			return aciertos;
+		}
+	}
+
+	public long fallos() {
+		synchronized (cache) {
+			return fallos;
+		}
+	}
+}
@@ -0,0 +1,145 @@
+package ejerciciosEnClase;
+
+import java.util.Arrays;
+
+/*
+ * Convierte una expresión infija, por ejemplo "4 - 2 + 8 / 2 ^ 3", a los tokens posfijos de un EvaluadorPostfijo en una
+ * sola pasada, con el algoritmo shunting-yard: los números pasan directo a la salida y los operadores esperan en una pila
+ * hasta que llega uno de menor precedencia o un ')'. No se arma ningún texto posfijo intermedio; los tokens se escriben
+ * en el evaluador, que después se evalúa con calcular() o evaluar().
+ *
+ * Precedencias, de mayor a menor:
+ *   ^          asociativo a la derecha: 2 ^ 3 ^ 2 es 2 ^ (3 ^ 2)
+ *   - unario   -2 ^ 2 es -(2 ^ 2), pero -2 * 3 es (-2) * 3
+ *   * / %
+ *   + -
+ * Un '-' es unario cuando aparece donde se espera un operando (al inicio, después de '(' o de otro operador). Un '+' en esa
+ * posición se ignora.
+ *
+ * Igual que EvaluadorPostfijo, reutiliza su pila de una línea a otra y no es seguro usar una instancia desde varios hilos.
+ */
+public class ConvertidorInfijo {
+	private char[] operadores = new char[16];
+	private int tope;
+
+	// Conveniencia para una sola expresión; para muchas líneas conviene reutilizar el convertidor y el evaluador
+	public static int evaluar(CharSequence expresion) {
+		EvaluadorPostfijo evaluador = new EvaluadorPostfijo();
+		new ConvertidorInfijo().convertir(expresion, evaluador);
+		return evaluador.evaluar();
+	}
+
+	// Reemplaza los tokens del evaluador por los de la expresión. Lanza IllegalArgumentException si la expresión no es válida.
+	public void convertir(CharSequence expresion, EvaluadorPostfijo destino) {
+		destino.reiniciarTokens();
+		tope = 0;
+		boolean esperaOperando = true;
+
+		int n = expresion.length();
+		int i = 0;
+		while (i < n) {
+			char c = expresion.charAt(i);
+
+			if (EvaluadorPostfijo.esEspacio(c)) {
+				i++;
+				continue;
+			}
+
+			if (c >= '0' && c <= '9') {
+				if (!esperaOperando) throw new IllegalArgumentException("Falta un operador antes de la posición " + (i + 1) + " en \"" + expresion + "\"");
+
+				int inicio = i;
+				long valor = 0;
+				for (; i < n && expresion.charAt(i) >= '0' && expresion.charAt(i) <= '9'; i++) {
+					valor = valor * 10 + (expresion.charAt(i) - '0');
+					if (valor > 1L + Integer.MAX_VALUE) throw new NumberFormatException("Entero fuera de rango: \"" + expresion.subSequence(inicio, i + 1) + "...\"");
+				}
+
+				if (valor > Integer.MAX_VALUE) {
+					// Solo -2147483648 cabe en un token: el menos unario que lo precede pasa a ser el signo del número. Con un
+					// '^' después no se puede, porque -2147483648 ^ 2 es -(2147483648 ^ 2).
+					if (tope == 0 || operadores[tope - 1] != EvaluadorPostfijo.NEGATIVO || siguienteNoEspacio(expresion, i) == '^') {
+						throw new NumberFormatException("Entero fuera de rango: \"" + expresion.subSequence(inicio, i) + "\"");
+					}
+					tope--;
+					valor = -valor;
+				}
+
+				destino.agregarToken(EvaluadorPostfijo.NUMERO, (int) valor);
+				esperaOperando = false;
+				continue;
+			}
+
+			i++;
+			if (c == '(') {
+				if (!esperaOperando) throw new IllegalArgumentException("Falta un operador antes de '(' en la posición " + i + " de \"" + expresion + "\"");
+				apilar(c);
+			} else if (c == ')') {
+				if (esperaOperando) throw new IllegalArgumentException("Falta un operando antes de ')' en la posición " + i + " de \"" + expresion + "\"");
+
+				while (tope > 0 && operadores[tope - 1] != '(') {
+					destino.agregarToken(operadores[--tope], 0);
+				}
+				if (tope == 0) throw new IllegalArgumentException("Sobra un ')' en la posición " + i + " de \"" + expresion + "\"");
+				tope--;
+			} else if (EvaluadorPostfijo.esOperador(c)) {
+				if (esperaOperando) {
+					if (c == '-') {
+						apilar(EvaluadorPostfijo.NEGATIVO);
+					} else if (c != '+') {
+						throw new IllegalArgumentException("Falta un operando antes de " + c + " en la posición " + i + " de \"" + expresion + "\"");
+					}
+					continue;
+				}
+
+				// Salen los operadores que deben aplicarse antes; con '^' los de igual precedencia se quedan (asociativo a la derecha)
+				int precedencia = precedencia(c);
+				while (tope > 0) {
+					char cima = operadores[tope - 1];
+					if (cima == '(') break;
+
+					int precedenciaCima = precedencia(cima);
+					if (precedenciaCima < precedencia || (precedenciaCima == precedencia && c == '^')) break;
+
+					destino.agregarToken(cima, 0);
+					tope--;
+				}
+
+				apilar(c);
+				esperaOperando = true;
+			} else {
+				throw new IllegalArgumentException("Carácter no válido '" + c + "' en la posición " + i + " de \"" + expresion + "\"");
+			}
+		}
+
+		if (esperaOperando) throw new IllegalArgumentException("La expresión \"" + expresion + "\" está incompleta");
+
+		while (tope > 0) {
+			char operador = operadores[--tope];
+			if (operador == '(') throw new IllegalArgumentException("Falta un ')' en \"" + expresion + "\"");
+
+			destino.agregarToken(operador, 0);
+		}
+	}
+
+	private static int precedencia(char operador) {
+		return switch (operador) {
+			case '+', '-' -> 1;
+			case '*', '/', '%' -> 2;
+			case EvaluadorPostfijo.NEGATIVO -> 3;
+			default -> 4;	// '^'
+		};
+	}
+
+	private static char siguienteNoEspacio(CharSequence expresion, int i) {
+		while (i < expresion.length() && EvaluadorPostfijo.esEspacio(expresion.charAt(i))) i++;
+
+		return (i < expresion.length()) ? expresion.charAt(i) : 0;
+	}
+
+	private void apilar(char operador) {
+		if (tope == operadores.length) operadores = Arrays.copyOf(operadores, tope * 2);
+
+		operadores[tope++] = operador;
+	}
+}
@@ -0,0 +1,164 @@
+package ejerciciosEnClase;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/*
+ * Recorre los elementos de una línea posfija directamente sobre sus bytes, sin crear un String por línea ni por elemento.
+ * La línea es una ventana [inicio, fin) de un ByteBuffer (que puede estar mapeado en memoria) o de un byte[]:
+ *
+ *     cursor.reiniciar(bytes, inicio, fin);
+ *     while (cursor.siguiente()) {
+ *         ... cursor.tipo() es EvaluadorPostfijo.NUMERO o el operador, y cursor.valor() el número ...
+ *     }
+ *
+ * Acepta lo mismo que EvaluadorPostfijo.tokenizar(CharSequence), con los mismos errores. También es un CharSequence de la
+ * ventana (cada byte es un carácter, que basta para el texto ASCII de las expresiones), así que ConvertidorInfijo puede
+ * leer la misma línea sin copiarla; solo toString() y subSequence() crean un String, y únicamente se usan en los mensajes
+ * de error.
+ *
+ * Una instancia se reutiliza de una línea a otra y no es segura para usarse desde varios hilos a la vez.
+ */
+public final class CursorPostfijo implements CharSequence {
+	private ByteBuffer bytes;
+	private byte[] arreglo;		// si la línea está en un byte[], se lee directo de él en lugar de pasar por el ByteBuffer
+	private int inicio;
+	private int fin;
+	private int posicion;		// siguiente byte por leer; todas las posiciones son absolutas en bytes
+	private char tipo;
+	private int valor;
+
+	public CursorPostfijo reiniciar(ByteBuffer bytes, int inicio, int fin) {
+		this.bytes = bytes;
+		this.arreglo = null;
+		return ventana(inicio, fin);
+	}
+
+	public CursorPostfijo reiniciar(byte[] bytes, int inicio, int fin) {
+		if (arreglo != bytes) {
+			this.bytes = ByteBuffer.wrap(bytes);	// solo para toString() y los mensajes de error
+			this.arreglo = bytes;
+		}
+		return ventana(inicio, fin);
+	}
+
+	/*
+	 * Avanza al siguiente elemento; devuelve false al terminar la línea. Los elementos vacíos entre comas se saltan.
+	 * Cada elemento se lee en una sola pasada: el número se va calculando mientras se buscan su fin y la coma siguiente.
+	 */
+	public boolean siguiente() {
+		int i = posicion;
+		byte c;
+		while (true) {
+			if (i >= fin) {
+				posicion = i;
+				return false;
+			}
+
+			c = en(i);
+			if (c != ',' && !esEspacio(c)) break;
+			i++;
+		}
+
+		int a = i;
+		boolean signo = (c == '-' || c == '+');
+		if (esDigito(c) || (signo && i + 1 < fin && esDigito(en(i + 1)))) {
+			if (signo) i++;
+
+			long numero = 0;
+			for (; i < fin && esDigito(en(i)); i++) {
+				numero = numero * 10 + (en(i) - '0');
+				if (numero > 1L + Integer.MAX_VALUE) throw new NumberFormatException("Entero fuera de rango: \"" + elemento(a) + "\"");
+			}
+
+			if (c == '-') numero = -numero;
+			if (numero > Integer.MAX_VALUE) throw new NumberFormatException("Entero fuera de rango: \"" + elemento(a) + "\"");
+
+			tipo = EvaluadorPostfijo.NUMERO;
+			valor = (int) numero;
+		} else {
+			if (!EvaluadorPostfijo.esOperador((char) c)) throw new NumberFormatException("Elemento no válido: \"" + elemento(a) + "\"");
+
+			i++;
+			tipo = (char) c;
+			valor = 0;
+		}
+
+		// Después del elemento solo puede haber espacios hasta la coma
+		while (i < fin && esEspacio(en(i))) i++;
+		if (i < fin && en(i) != ',') throw new NumberFormatException("Elemento no válido: \"" + elemento(a) + "\"");
+
+		posicion = i + 1;
+		return true;
+	}
+
+	public char tipo() {
+		return tipo;
+	}
+
+	public int valor() {
+		return valor;
+	}
+
+	// Si la línea solo tiene espacios (o nada)
+	public boolean enBlanco() {
+		for (int i = inicio; i < fin; i++) {
+			if (!esEspacio(en(i))) return false;
+		}
+		return true;
+	}
+
+	@Override
+	public int length() {
+		return fin - inicio;
+	}
+
+	@Override
+	public char charAt(int indice) {
+		return (char) (en(inicio + indice) & 0xFF);
+	}
+
+	@Override
+	public CharSequence subSequence(int desde, int hasta) {
+		return texto(inicio + desde, inicio + hasta);
+	}
+
+	@Override
+	public String toString() {
+		return texto(inicio, fin);
+	}
+
+	private CursorPostfijo ventana(int inicio, int fin) {
+		this.inicio = inicio;
+		this.fin = fin;
+		this.posicion = inicio;
+		return this;
+	}
+
+	// El texto del elemento que empieza en a, sin los espacios finales; solo para los mensajes de error
+	private String elemento(int a) {
+		int b = a;
+		while (b < fin && en(b) != ',') b++;
+		while (b > a && esEspacio(en(b - 1))) b--;
+
+		return texto(a, b);
+	}
+
+	private String texto(int a, int b) {
+		byte[] copia = new byte[b - a];
+		bytes.get(a, copia);
+		return new String(copia, StandardCharsets.UTF_8);
+	}
+
+	private byte en(int i) {
+		return (arreglo != null) ? arreglo[i] : bytes.get(i);
+	}
+
+	private static boolean esDigito(byte b) {
+		return b >= '0' && b <= '9';
+	}
+
+	private static boolean esEspacio(byte b) {
+		return b == ' ' || b == '\t' || b == '\r' || b == '\n';
+	}
+}
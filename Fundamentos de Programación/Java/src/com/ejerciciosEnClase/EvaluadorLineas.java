@@ -0,0 +1,49 @@
+package ejerciciosEnClase;
+
+import java.nio.ByteBuffer;
+
+/*
+ * Evalúa líneas que todavía están en bytes y escribe cada resultado en una SalidaBytes. Junta lo que necesita una línea
+ * (cursor, convertidor infijo y evaluador) para que AppEvaluaPostFijas y EvaluadorPorLotes la procesen igual. Con
+ * expresiones válidas no crea ningún objeto por línea.
+ */
+class EvaluadorLineas {
+	private final EvaluadorPostfijo evaluador;
+	private final ConvertidorInfijo convertidor;	// null si las líneas son posfijas
+	private final CursorPostfijo cursor = new CursorPostfijo();
+
+	EvaluadorLineas(Aritmetica aritmetica, boolean infija) {
+		this.evaluador = new EvaluadorPostfijo(aritmetica);
+		this.convertidor = infija ? new ConvertidorInfijo() : null;
+	}
+
+	/*
+	 * Devuelve false si la línea está en blanco y no escribe nada. Si la expresión no es válida o su cálculo falla, lanza
+	 * IllegalArgumentException o ArithmeticException, también sin escribir nada.
+	 */
+	boolean evaluar(ByteBuffer bytes, int inicio, int fin, SalidaBytes salida) {
+		return evaluar(cursor.reiniciar(bytes, inicio, fin), salida);
+	}
+
+	boolean evaluar(byte[] bytes, int inicio, int fin, SalidaBytes salida) {
+		return evaluar(cursor.reiniciar(bytes, inicio, fin), salida);
+	}
+
+	private boolean evaluar(CursorPostfijo linea, SalidaBytes salida) {
+		if (linea.enBlanco()) return false;
+
+		if (convertidor != null) {
+			convertidor.convertir(linea, evaluador);
+		} else {
+			evaluador.tokenizar(linea);
+		}
+
+		long resultado = evaluador.calcular();
+		if (evaluador.desborde() != null) {
+			salida.escribir(evaluador.desborde());
+		} else {
+			salida.escribir(resultado);
+		}
+		return true;
+	}
+}
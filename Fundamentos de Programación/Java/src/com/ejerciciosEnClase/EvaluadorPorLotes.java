@@ -0,0 +1,155 @@
+package ejerciciosEnClase;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/*
+ * Evalúa un archivo de expresiones posfijas completo usando varios hilos.
+ *
+ * El archivo se divide en bloques de unos TAMANO_BLOQUE bytes que siempre terminan justo después de un '\n', así que
+ * ninguna línea queda partida entre dos bloques. Cada bloque se mapea en memoria y se evalúa en un ForkJoinPool con su
+ * propio EvaluadorLineas, que lee cada línea en su lugar dentro del bloque, y sus resultados se escriben en un arreglo de
+ * bytes. El hilo que llama escribe esos arreglos en la salida en el orden del archivo, conforme se van terminando.
+ *
+ * Solo hay VENTANA bloques por hilo en vuelo a la vez: si la salida es más lenta que la evaluación, no se siguen leyendo
+ * bloques, así que la memoria no depende del tamaño del archivo.
+ * Como en AppEvaluaPostFijas, las líneas vacías se saltan y las que tienen errores se informan con su número de línea, y
+ * las líneas pueden ser infijas si así se indica al construirlo.
+ */
+public class EvaluadorPorLotes {
+	static final int TAMANO_BLOQUE = 4 << 20;
+	private static final int VENTANA = 4;
+
+	private final int hilos;
+	private final Aritmetica aritmetica;
+	private final boolean infija;
+
+	public EvaluadorPorLotes(int hilos) {
+		this(hilos, Aritmetica.ENTERA);
+	}
+
+	public EvaluadorPorLotes(int hilos, Aritmetica aritmetica) {
+		this(hilos, aritmetica, false);
+	}
+
+	public EvaluadorPorLotes(int hilos, Aritmetica aritmetica, boolean infija) {
+		if (hilos <= 0) throw new IllegalArgumentException("Se necesita al menos un hilo: " + hilos);
+
+		this.hilos = hilos;
+		this.aritmetica = aritmetica;
+		this.infija = infija;
+	}
+
+	// Devuelve cuántas expresiones se evaluaron sin errores
+	public long evaluar(Path archivo, WritableByteChannel salida, PrintStream errores) throws IOException {
+		ForkJoinPool pool = new ForkJoinPool(hilos);
+
+		try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.READ)) {
+			long tamano = canal.size();
+			Deque<ForkJoinTask<Resultado>> enVuelo = new ArrayDeque<>();
+			long siguiente = 0;		// inicio del siguiente bloque sin enviar
+			long lineasAnteriores = 0;
+			long evaluadas = 0;
+
+			while (siguiente < tamano || !enVuelo.isEmpty()) {
+				while (siguiente < tamano && enVuelo.size() < hilos * VENTANA) {
+					long inicio = siguiente;
+					long fin = finDeBloque(canal, inicio, tamano);
+					enVuelo.addLast(pool.submit(() -> evaluarBloque(canal, inicio, fin)));
+					siguiente = fin;
+				}
+
+				Resultado resultado = enVuelo.removeFirst().join();
+				resultado.vaciar(salida);
+
+				for (int i = 0; i < resultado.errores.size(); i++) {
+					errores.println("Línea " + (lineasAnteriores + resultado.lineasConError[i]) + ": " + resultado.errores.get(i));
+				}
+
+				lineasAnteriores += resultado.lineas;
+				evaluadas += resultado.evaluadas;
+			}
+
+			return evaluadas;
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	// Avanza desde inicio + TAMANO_BLOQUE hasta pasar el siguiente '\n' (o hasta el final del archivo)
+	private static long finDeBloque(FileChannel canal, long inicio, long tamano) throws IOException {
+		long posicion = inicio + TAMANO_BLOQUE;
+		if (posicion >= tamano) return tamano;
+
+		ByteBuffer buffer = ByteBuffer.allocate(4096);
+		while (posicion < tamano) {
+			buffer.clear();
+			int leidos = canal.read(buffer, posicion);
+			if (leidos <= 0) break;
+
+			for (int i = 0; i < leidos; i++) {
+				if (buffer.get(i) == '\n') return posicion + i + 1;
+			}
+			posicion += leidos;
+		}
+
+		return tamano;
+	}
+
+	private Resultado evaluarBloque(FileChannel canal, long inicio, long fin) throws IOException {
+		MappedByteBuffer bloque = canal.map(FileChannel.MapMode.READ_ONLY, inicio, fin - inicio);
+		EvaluadorLineas evaluador = new EvaluadorLineas(aritmetica, infija);
+		Resultado resultado = new Resultado((int) (fin - inicio) / 4);
+
+		// Cada línea se lee en su lugar dentro del bloque mapeado, sin copiarla ni convertirla en String
+		int n = bloque.limit();
+		int i = 0;
+		while (i < n) {
+			int finLinea = i;
+			while (finLinea < n && bloque.get(finLinea) != '\n') finLinea++;
+
+			int linea = i;
+			i = finLinea + 1;
+			resultado.lineas++;
+
+			try {
+				if (evaluador.evaluar(bloque, linea, finLinea, resultado)) resultado.evaluadas++;
+			} catch (IllegalArgumentException | ArithmeticException e) {
+				resultado.error(e.getMessage());
+			}
+		}
+
+		return resultado;
+	}
+
+	// Salida de un bloque: el texto de los resultados ya en bytes, más los errores con su línea dentro del bloque
+	private static final class Resultado extends SalidaBytes {
+		int lineas;
+		long evaluadas;
+		final List<String> errores = new ArrayList<>();
+		int[] lineasConError = new int[0];
+
+		Resultado(int capacidad) {
+			super(capacidad);
+		}
+
+		void error(String mensaje) {
+			if (errores.size() == lineasConError.length) lineasConError = Arrays.copyOf(lineasConError, Math.max(8, lineasConError.length * 2));
+			lineasConError[errores.size()] = lineas;
+			errores.add(mensaje);
+		}
+	}
+}
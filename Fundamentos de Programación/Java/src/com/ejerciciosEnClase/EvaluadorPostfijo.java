@@ -0,0 +1,360 @@
+package ejerciciosEnClase;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+
+/*
+ * Núcleo de evaluación de expresiones posfijas separadas por comas, por ejemplo "4,2,-,8,2,3,^,/,+".
+ * La línea se convierte una sola vez en tokens (un tipo char y un valor int por token) y después se evalúa sobre una pila
+ * de long: ningún operando se guarda como String ni se convierte de ida y vuelta con parseInt/toString.
+ *
+ * La aritmética depende del modo (ver Aritmetica): por defecto es int y un desbordamiento lanza ArithmeticException en lugar
+ * de dar otro número. '^' eleva por cuadrados con enteros, en lugar de pasar por Math.pow y double. Un exponente negativo
+ * da el resultado truncado, como 1 / (base ^ -exponente) con división entera.
+ *
+ * Una instancia reutiliza sus arreglos de una línea a otra, así que evaluar millones de líneas no crea basura por línea.
+ * No es segura para usarse desde varios hilos a la vez: cada hilo necesita su propio evaluador.
+ */
+public class EvaluadorPostfijo {
+	static final char NUMERO = 'n';	// tipo de los tokens que son operandos; los operadores usan su propio carácter
+	static final char NEGATIVO = '~';	// menos unario; el texto posfijo no lo usa, solo lo genera ConvertidorInfijo
+
+	// El mensaje de ArithmeticException de una división entre cero con int y long; las divisiones con BigInteger usan el mismo
+	private static final String DIVISION_ENTRE_CERO = "/ by zero";
+
+	// Evita que una potencia enorme en modo GRANDE se coma la memoria: ningún resultado puede pasar de este número de bits
+	private static final long MAXIMO_BITS = 1 << 20;
+
+	private final Aritmetica aritmetica;
+	private char[] tipos = new char[16];
+	private int[] valores = new int[16];
+	private int numTokens;
+	private long[] pila = new long[16];
+	private BigInteger[] pilaGrande;	// solo se crea si una expresión se desborda en modo GRANDE
+	private BigInteger resultadoGrande;
+
+	public EvaluadorPostfijo() {
+		this(Aritmetica.ENTERA);
+	}
+
+	public EvaluadorPostfijo(Aritmetica aritmetica) {
+		this.aritmetica = aritmetica;
+	}
+
+	public Aritmetica aritmetica() {
+		return aritmetica;
+	}
+
+	public int evaluar(CharSequence linea) {
+		tokenizar(linea);
+		return evaluar();
+	}
+
+	/*
+	 * Separa la línea en tokens. Los espacios alrededor de cada elemento se ignoran (también el '\r' de los archivos de Windows).
+	 * Un elemento de un solo carácter entre + - * / % ^ es un operador; cualquier otro debe ser un entero con signo opcional,
+	 * igual que lo aceptaría Integer.parseInt.
+	 */
+	public void tokenizar(CharSequence linea) {
+		reiniciarTokens();
+		int n = linea.length();
+		int i = 0;
+
+		while (i <= n) {
+			int fin = i;
+			while (fin < n && linea.charAt(fin) != ',') fin++;
+
+			int inicio = i;
+			int ultimo = fin;
+			while (inicio < ultimo && esEspacio(linea.charAt(inicio))) inicio++;
+			while (ultimo > inicio && esEspacio(linea.charAt(ultimo - 1))) ultimo--;
+
+			if (inicio < ultimo) {
+				char c = linea.charAt(inicio);
+
+				if (ultimo - inicio == 1 && esOperador(c)) {
+					agregarToken(c, 0);
+				} else {
+					agregarToken(NUMERO, parsearEntero(linea, inicio, ultimo));
+				}
+			}
+
+			i = fin + 1;
+		}
+	}
+
+	// Lo mismo, tomando los elementos de un cursor sobre los bytes de la línea: ni la línea ni sus elementos pasan por String
+	public void tokenizar(CursorPostfijo cursor) {
+		reiniciarTokens();
+
+		while (cursor.siguiente()) {
+			agregarToken(cursor.tipo(), cursor.valor());
+		}
+	}
+
+	// Evalúa los tokens de la última línea tokenizada. Si el resultado no cabe en un int, lanza ArithmeticException.
+	public int evaluar() {
+		return Math.toIntExact(evaluarLargo());
+	}
+
+	// Si el resultado no cabe en un long (solo puede pasar en modo GRANDE), lanza ArithmeticException
+	public long evaluarLargo() {
+		long resultado = calcular();
+		if (resultadoGrande != null) throw new ArithmeticException("El resultado no cabe en un long: " + resultadoGrande);
+
+		return resultado;
+	}
+
+	public BigInteger evaluarGrande() {
+		long resultado = calcular();
+		return (resultadoGrande != null) ? resultadoGrande : BigInteger.valueOf(resultado);
+	}
+
+	/*
+	 * Evalúa los tokens y devuelve el resultado si cabe en un long. Si no cabe (solo en modo GRANDE), devuelve 0 y el
+	 * resultado queda en desborde(). Así quien escribe resultados no crea un BigInteger por cada línea.
+	 */
+	long calcular() {
+		resultadoGrande = null;
+		if (aritmetica != Aritmetica.GRANDE) return calcularLargo();
+
+		try {
+			return calcularLargo();
+		} catch (ArithmeticException e) {
+			// Una división entre cero fallaría igual con BigInteger, así que solo un desbordamiento vuelve a calcularse
+			if (DIVISION_ENTRE_CERO.equals(e.getMessage())) throw e;
+
+			BigInteger resultado = calcularGrande();
+			if (resultado.bitLength() < Long.SIZE) return resultado.longValue();
+
+			resultadoGrande = resultado;
+			return 0;
+		}
+	}
+
+	// El resultado de la última llamada a calcular() si no cupo en un long, o null
+	BigInteger desborde() {
+		return resultadoGrande;
+	}
+
+	private long calcularLargo() {
+		boolean entera = (aritmetica == Aritmetica.ENTERA);
+		int tope = 0;
+
+		for (int i = 0; i < numTokens; i++) {
+			char tipo = tipos[i];
+
+			if (tipo == NUMERO) {
+				pila[tope++] = valores[i];
+				continue;
+			}
+
+			exigirOperandos(tipo, tope);
+
+			if (tipo == NEGATIVO) {
+				pila[tope - 1] = entera ? Math.negateExact((int) pila[tope - 1]) : Math.negateExact(pila[tope - 1]);
+				continue;
+			}
+
+			long operando2 = pila[--tope];
+			long operando1 = pila[tope - 1];
+
+			pila[tope - 1] = entera ? aplicar(tipo, (int) operando1, (int) operando2) : aplicar(tipo, operando1, operando2);
+		}
+
+		exigirUnResultado(tope);
+
+		return pila[0];
+	}
+
+	/*
+	 * La misma evaluación con BigInteger, cuando el cálculo con long se desbordó. El desbordamiento pudo llegar antes que un
+	 * error en la estructura de la línea, así que aquí se revisan los operandos igual que en calcularLargo().
+	 */
+	private BigInteger calcularGrande() {
+		if (pilaGrande == null || pilaGrande.length < pila.length) pilaGrande = new BigInteger[pila.length];
+		int tope = 0;
+
+		try {
+			for (int i = 0; i < numTokens; i++) {
+				char tipo = tipos[i];
+
+				if (tipo == NUMERO) {
+					pilaGrande[tope++] = BigInteger.valueOf(valores[i]);
+					continue;
+				}
+
+				exigirOperandos(tipo, tope);
+
+				if (tipo == NEGATIVO) {
+					pilaGrande[tope - 1] = pilaGrande[tope - 1].negate();
+					continue;
+				}
+
+				BigInteger operando2 = pilaGrande[--tope];
+				BigInteger operando1 = pilaGrande[tope - 1];
+
+				pilaGrande[tope - 1] = switch (tipo) {
+					case '+' -> operando1.add(operando2);
+					case '-' -> operando1.subtract(operando2);
+					case '*' -> operando1.multiply(operando2);
+					case '/' -> operando1.divide(divisor(operando2));
+					case '%' -> operando1.remainder(divisor(operando2));
+					case '^' -> potencia(operando1, operando2);
+					default -> throw new IllegalStateException("Operador desconocido: " + tipo);
+				};
+			}
+
+			exigirUnResultado(tope);
+
+			return pilaGrande[0];
+		} finally {
+			Arrays.fill(pilaGrande, 0, tope, null);	// no retiene los números de esta línea, aunque haya fallado
+		}
+	}
+
+	// tipo es un operador: el menos unario necesita un operando en la pila y los demás dos
+	private static void exigirOperandos(char tipo, int tope) {
+		if (tipo == NEGATIVO) {
+			if (tope < 1) throw new IllegalArgumentException("Falta el operando del menos unario");
+		} else if (tope < 2) {
+			throw new IllegalArgumentException("Faltan operandos para el operador " + tipo);
+		}
+	}
+
+	private static void exigirUnResultado(int tope) {
+		if (tope != 1) throw new IllegalArgumentException("La expresión deja " + tope + " valores en la pila en lugar de uno");
+	}
+
+	// La aritmética ENTERA, que también usa ExpresionCompilada. Un desbordamiento lanza ArithmeticException.
+	static int aplicar(char operador, int operando1, int operando2) {
+		return switch (operador) {
+			case '+' -> Math.addExact(operando1, operando2);
+			case '-' -> Math.subtractExact(operando1, operando2);
+			case '*' -> Math.multiplyExact(operando1, operando2);
+			case '/' -> Math.divideExact(operando1, operando2);
+			case '%' -> operando1 % operando2;
+			case '^' -> Math.toIntExact(potencia(operando1, operando2));
+			default -> throw new IllegalStateException("Operador desconocido: " + operador);
+		};
+	}
+
+	static long aplicar(char operador, long operando1, long operando2) {
+		return switch (operador) {
+			case '+' -> Math.addExact(operando1, operando2);
+			case '-' -> Math.subtractExact(operando1, operando2);
+			case '*' -> Math.multiplyExact(operando1, operando2);
+			case '/' -> Math.divideExact(operando1, operando2);
+			case '%' -> operando1 % operando2;
+			case '^' -> potencia(operando1, operando2);
+			default -> throw new IllegalStateException("Operador desconocido: " + operador);
+		};
+	}
+
+	// Exponenciación por cuadrados: O(log exponente) multiplicaciones, todas exactas
+	static long potencia(long base, long exponente) {
+		if (exponente < 0) return potenciaNegativa(base, exponente);
+
+		long resultado = 1;
+		while (true) {
+			if ((exponente & 1) != 0) resultado = Math.multiplyExact(resultado, base);
+
+			exponente >>= 1;
+			if (exponente == 0) return resultado;
+
+			// Si quedan bits en el exponente, este cuadrado termina multiplicado en el resultado, así que su desbordamiento también es el del resultado
+			base = Math.multiplyExact(base, base);
+		}
+	}
+
+	private static BigInteger potencia(BigInteger base, BigInteger exponente) {
+		boolean baseUnitaria = base.abs().compareTo(BigInteger.ONE) <= 0;	// 0, 1 o -1
+
+		if (exponente.signum() < 0) {
+			// Con |base| >= 2 el resultado es 0, así que basta con la base acotada y la paridad del exponente
+			long acotada = baseUnitaria ? base.longValue() : 2;
+			return BigInteger.valueOf(potenciaNegativa(acotada, exponente.testBit(0) ? -1 : -2));
+		}
+
+		if (baseUnitaria) {
+			if (exponente.signum() == 0) return BigInteger.ONE;
+			return (base.signum() < 0 && !exponente.testBit(0)) ? BigInteger.ONE : base;
+		}
+
+		if (exponente.bitLength() > 31 || (long) base.bitLength() * exponente.longValue() > MAXIMO_BITS) throw new ArithmeticException("El resultado de " + base + " ^ " + exponente + " es demasiado grande");
+
+		return base.pow(exponente.intValue());
+	}
+
+	// base ^ exponente con exponente < 0, truncado como una división entera
+	private static long potenciaNegativa(long base, long exponente) {
+		if (base == 0) throw new ArithmeticException(DIVISION_ENTRE_CERO);
+		if (base == 1) return 1;
+		if (base == -1) return ((exponente & 1) == 0) ? 1 : -1;
+
+		return 0;
+	}
+
+	private static BigInteger divisor(BigInteger divisor) {
+		if (divisor.signum() == 0) throw new ArithmeticException(DIVISION_ENTRE_CERO);
+
+		return divisor;
+	}
+
+	static boolean esOperador(char c) {
+		return switch (c) {
+			case '+', '-', '*', '/', '%', '^' -> true;
+			default -> false;
+		};
+	}
+
+	// Para quien genera los tokens sin pasar por tokenizar(), como ConvertidorInfijo
+	void reiniciarTokens() {
+		numTokens = 0;
+	}
+
+	void agregarToken(char tipo, int valor) {
+		if (numTokens == tipos.length) {
+			int capacidad = tipos.length * 2;
+			tipos = Arrays.copyOf(tipos, capacidad);
+			valores = Arrays.copyOf(valores, capacidad);
+			pila = new long[capacidad];	// la pila nunca tiene más elementos que tokens la expresión
+		}
+
+		tipos[numTokens] = tipo;
+		valores[numTokens] = valor;
+		numTokens++;
+	}
+
+	// Mismo resultado que Integer.parseInt(linea.substring(inicio, fin)), pero sin crear el String
+	static int parsearEntero(CharSequence linea, int inicio, int fin) {
+		boolean negativo = false;
+		int i = inicio;
+
+		char signo = linea.charAt(i);
+		if (signo == '-' || signo == '+') {
+			negativo = (signo == '-');
+			i++;
+		}
+
+		if (i == fin) throw new NumberFormatException("Elemento no válido: \"" + linea.subSequence(inicio, fin) + "\"");
+
+		long valor = 0;
+		for (; i < fin; i++) {
+			int digito = linea.charAt(i) - '0';
+			if (digito < 0 || digito > 9) throw new NumberFormatException("Elemento no válido: \"" + linea.subSequence(inicio, fin) + "\"");
+
+			valor = valor * 10 + digito;
+			if (valor > 1L + Integer.MAX_VALUE) throw new NumberFormatException("Entero fuera de rango: \"" + linea.subSequence(inicio, fin) + "\"");
+		}
+
+		if (negativo) valor = -valor;
+		if (valor > Integer.MAX_VALUE) throw new NumberFormatException("Entero fuera de rango: \"" + linea.subSequence(inicio, fin) + "\"");
+
+		return (int) valor;
+	}
+
+	static boolean esEspacio(char c) {
+		return c == ' ' || c == '\t' || c == '\r' || c == '\n';
+	}
+}
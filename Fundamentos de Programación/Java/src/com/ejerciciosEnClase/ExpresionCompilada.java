@@ -0,0 +1,262 @@
+package ejerciciosEnClase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/*
+ * Expresión posfija con variables ya compilada, para evaluarla muchas veces con distintos valores sin volver a leer el texto.
+ * Los elementos que empiezan con una letra o '_' son variables, por ejemplo "x,2,*,y,+". Cada variable distinta recibe un
+ * registro en el orden en que aparece por primera vez (variables() da ese orden), y evaluate() recibe el valor de cada
+ * registro en un int[].
+ *
+ * Al compilar, las operaciones entre constantes se calculan de una vez. Quedan dos formas ejecutables de la expresión:
+ *   - un árbol de funciones (Nodo) para evaluate(), que no usa pila ni crea objetos en cada evaluación;
+ *   - un programa de instrucciones para evaluateBatch(), que ejecuta cada instrucción sobre un bloque de filas a la vez.
+ *     Los ciclos internos son columnas de int sin dependencias entre filas, así que el JIT los puede vectorizar.
+ *
+ * La aritmética es la del modo ENTERA de EvaluadorPostfijo: int exacto, y un desbordamiento lanza ArithmeticException.
+ * Es inmutable, así que una misma instancia se puede usar desde varios hilos. CompiladorPostfijo guarda las compiladas en
+ * un caché LRU.
+ */
+public final class ExpresionCompilada {
+	private static final char VARIABLE = 'v';
+	private static final int BLOQUE = 1024;	// filas por bloque en evaluateBatch
+
+	@FunctionalInterface
+	interface Nodo {
+		int valor(int[] registros);
+	}
+
+	private final String texto;
+	private final String[] variables;
+	private final char[] codigos;		// EvaluadorPostfijo.NUMERO, VARIABLE o el operador
+	private final int[] argumentos;		// el número o el registro de la variable
+	private final int profundidadMaxima;
+	private final Nodo raiz;
+
+	private ExpresionCompilada(String texto, String[] variables, char[] codigos, int[] argumentos, int profundidadMaxima) {
+		this.texto = texto;
+		this.variables = variables;
+		this.codigos = codigos;
+		this.argumentos = argumentos;
+		this.profundidadMaxima = profundidadMaxima;
+		this.raiz = construirArbol();
+	}
+
+	public static ExpresionCompilada compilar(String texto) {
+		List<String> variables = new ArrayList<>();
+		char[] codigos = new char[16];
+		int[] argumentos = new int[16];
+		int n = 0;
+
+		// Por cada valor que quedaría en la pila: si es constante, y la profundidad para calcular la profundidad máxima
+		boolean[] constante = new boolean[16];
+		int tope = 0, profundidadMaxima = 0;
+
+		int longitud = texto.length();
+		for (int i = 0; i <= longitud; ) {
+			int fin = i;
+			while (fin < longitud && texto.charAt(fin) != ',') fin++;
+
+			int inicio = i, ultimo = fin;
+			while (inicio < ultimo && EvaluadorPostfijo.esEspacio(texto.charAt(inicio))) inicio++;
+			while (ultimo > inicio && EvaluadorPostfijo.esEspacio(texto.charAt(ultimo - 1))) ultimo--;
+			i = fin + 1;
+
+			if (inicio == ultimo) continue;
+
+			if (n + 1 >= codigos.length) {
+				codigos = Arrays.copyOf(codigos, codigos.length * 2);
+				argumentos = Arrays.copyOf(argumentos, argumentos.length * 2);
+			}
+			if (tope == constante.length) constante = Arrays.copyOf(constante, constante.length * 2);
+
+			char c = texto.charAt(inicio);
+
+			if (ultimo - inicio == 1 && EvaluadorPostfijo.esOperador(c)) {
+				if (tope < 2) throw new IllegalArgumentException("Faltan operandos para el operador " + c + " en \"" + texto + "\"");
+
+				tope--;
+				Integer plegado = (constante[tope] && constante[tope - 1]) ? plegar(c, argumentos[n - 2], argumentos[n - 1]) : null;
+				if (plegado != null) {
+					// Los dos operandos son las dos últimas instrucciones: se reemplazan por su resultado
+					argumentos[n - 2] = plegado;
+					n--;
+				} else {
+					constante[tope - 1] = false;
+					codigos[n++] = c;
+				}
+			} else if (Character.isLetter(c) || c == '_') {
+				String nombre = texto.substring(inicio, ultimo);
+				for (int k = inicio + 1; k < ultimo; k++) {
+					char ck = texto.charAt(k);
+					if (!Character.isLetterOrDigit(ck) && ck != '_') throw new IllegalArgumentException("Nombre de variable no válido: \"" + nombre + "\"");
+				}
+
+				int registro = variables.indexOf(nombre);
+				if (registro < 0) {
+					registro = variables.size();
+					variables.add(nombre);
+				}
+
+				codigos[n] = VARIABLE;
+				argumentos[n++] = registro;
+				constante[tope++] = false;
+			} else {
+				codigos[n] = EvaluadorPostfijo.NUMERO;
+				argumentos[n++] = EvaluadorPostfijo.parsearEntero(texto, inicio, ultimo);
+				constante[tope++] = true;
+			}
+
+			profundidadMaxima = Math.max(profundidadMaxima, tope);
+		}
+
+		if (tope != 1) throw new IllegalArgumentException("La expresión \"" + texto + "\" deja " + tope + " valores en la pila en lugar de uno");
+
+		return new ExpresionCompilada(texto, variables.toArray(new String[0]), Arrays.copyOf(codigos, n), Arrays.copyOf(argumentos, n), profundidadMaxima);
+	}
+
+	public String texto() {
+		return texto;
+	}
+
+	// Nombres de las variables, en el orden de sus registros
+	public String[] variables() {
+		return variables.clone();
+	}
+
+	// Registro de la variable, o -1 si la expresión no la usa
+	public int registro(String variable) {
+		return Arrays.asList(variables).indexOf(variable);
+	}
+
+	public int evaluate(int[] bindings) {
+		if (bindings.length < variables.length) throw new IllegalArgumentException("La expresión usa " + variables.length + " variables y solo se recibieron " + bindings.length + " valores");
+
+		return raiz.valor(bindings);
+	}
+
+	// Evalúa una fila de valores por expresión: resultados[i] es evaluate(bindings[i])
+	public int[] evaluateBatch(int[][] bindings) {
+		for (int[] fila : bindings) {
+			if (fila.length < variables.length) throw new IllegalArgumentException("La expresión usa " + variables.length + " variables y una fila solo tiene " + fila.length + " valores");
+		}
+
+		int filas = bindings.length;
+		int[] resultados = new int[filas];
+		int[][] pila = new int[profundidadMaxima][Math.min(BLOQUE, filas)];
+
+		for (int base = 0; base < filas; base += BLOQUE) {
+			int n = Math.min(BLOQUE, filas - base);
+			int tope = 0;
+
+			for (int k = 0; k < codigos.length; k++) {
+				char codigo = codigos[k];
+
+				if (codigo == EvaluadorPostfijo.NUMERO) {
+					Arrays.fill(pila[tope++], 0, n, argumentos[k]);
+				} else if (codigo == VARIABLE) {
+					int[] columna = pila[tope++];
+					int registro = argumentos[k];
+
+					for (int r = 0; r < n; r++) {
+						columna[r] = bindings[base + r][registro];
+					}
+				} else {
+					int[] operando2 = pila[--tope];
+					aplicarColumna(codigo, pila[tope - 1], operando2, n);
+				}
+			}
+
+			System.arraycopy(pila[0], 0, resultados, base, n);
+		}
+
+		return resultados;
+	}
+
+	@Override
+	public String toString() {
+		return texto;
+	}
+
+	/*
+	 * Un ciclo por operador, para que el cuerpo de cada uno sea una sola operación sobre dos columnas. En + - * los
+	 * desbordamientos se acumulan con OR en una variable y se revisan al final del ciclo, así el ciclo no tiene saltos y se
+	 * puede vectorizar.
+	 */
+	private static void aplicarColumna(char operador, int[] a, int[] b, int n) {
+		int desborde = 0;
+
+		switch (operador) {
+			case '+' -> {
+				for (int r = 0; r < n; r++) {
+					int suma = a[r] + b[r];
+					desborde |= (a[r] ^ suma) & (b[r] ^ suma);	// negativo si los dos operandos tienen el signo contrario al de la suma
+					a[r] = suma;
+				}
+			}
+			case '-' -> {
+				for (int r = 0; r < n; r++) {
+					int resta = a[r] - b[r];
+					desborde |= (a[r] ^ b[r]) & (a[r] ^ resta);
+					a[r] = resta;
+				}
+			}
+			case '*' -> {
+				for (int r = 0; r < n; r++) {
+					long producto = (long) a[r] * b[r];
+					desborde |= (int) (producto >> 32) ^ ((int) producto >> 31);	// distinto de cero si la parte alta no es solo el signo
+					a[r] = (int) producto;
+				}
+				if (desborde != 0) throw new ArithmeticException("integer overflow");
+			}
+			default -> {
+				for (int r = 0; r < n; r++) a[r] = EvaluadorPostfijo.aplicar(operador, a[r], b[r]);
+			}
+		}
+
+		if (desborde < 0) throw new ArithmeticException("integer overflow");
+	}
+
+	// El resultado de operar dos constantes, o null si la operación falla (entre cero, desbordamiento): así falla al evaluar, igual que sin compilar
+	private static Integer plegar(char operador, int operando1, int operando2) {
+		try {
+			return EvaluadorPostfijo.aplicar(operador, operando1, operando2);
+		} catch (ArithmeticException e) {
+			return null;
+		}
+	}
+
+	private Nodo construirArbol() {
+		Nodo[] pila = new Nodo[profundidadMaxima];
+		int tope = 0;
+
+		for (int k = 0; k < codigos.length; k++) {
+			char codigo = codigos[k];
+			int argumento = argumentos[k];
+
+			if (codigo == EvaluadorPostfijo.NUMERO) {
+				pila[tope++] = registros -> argumento;
+			} else if (codigo == VARIABLE) {
+				pila[tope++] = registros -> registros[argumento];
+			} else {
+				Nodo operando2 = pila[--tope];
+				pila[tope - 1] = operacion(codigo, pila[tope - 1], operando2);
+			}
+		}
+
+		return pila[0];
+	}
+
+	private static Nodo operacion(char operador, Nodo a, Nodo b) {
+		return switch (operador) {
+			case '+' -> registros -> Math.addExact(a.valor(registros), b.valor(registros));
+			case '-' -> registros -> Math.subtractExact(a.valor(registros), b.valor(registros));
+			case '*' -> registros -> Math.multiplyExact(a.valor(registros), b.valor(registros));
+			case '/' -> registros -> Math.divideExact(a.valor(registros), b.valor(registros));
+			case '%' -> registros -> a.valor(registros) % b.valor(registros);
+			default -> registros -> EvaluadorPostfijo.aplicar(operador, a.valor(registros), b.valor(registros));
+		};
+	}
+}
@@ -0,0 +1,73 @@
+package ejerciciosEnClase;
+
+import java.util.Arrays;
+
+/*
+ * Histograma de latencias en nanosegundos con cubetas logarítmicas: cada potencia de dos se divide en SUBCUBETAS cubetas
+ * iguales, así que un percentil se informa con un error menor a 1/SUBCUBETAS (6.25 %) sin guardar cada muestra. Registrar
+ * una muestra es un cálculo de índice y un incremento, sin crear objetos.
+ *
+ * No es seguro para usarse desde varios hilos: lo usa solo el hilo que evalúa.
+ */
+public final class HistogramaLatencias {
+	private static final int BITS_SUBCUBETA = 4;
+	private static final int SUBCUBETAS = 1 << BITS_SUBCUBETA;
+
+	private final long[] cuentas = new long[64 * SUBCUBETAS];
+	private long total;
+	private long maximo;
+
+	public void registrar(long nanos) {
+		if (nanos < 0) nanos = 0;
+
+		cuentas[cubeta(nanos)]++;
+		total++;
+		if (nanos > maximo) maximo = nanos;
+	}
+
+	public long cuenta() {
+		return total;
+	}
+
+	public long maximo() {
+		return maximo;
+	}
+
+	/*
+	 * El valor bajo el cual queda la fracción p de las muestras (p entre 0 y 1), redondeado hacia arriba al límite de su
+	 * cubeta. Sin muestras devuelve 0.
+	 */
+	public long percentil(double p) {
+		if (total == 0) return 0;
+
+		long objetivo = Math.max(1, (long) Math.ceil(p * total));
+		long acumulado = 0;
+		for (int i = 0; i < cuentas.length; i++) {
+			acumulado += cuentas[i];
+			if (acumulado >= objetivo) return Math.min(limiteSuperior(i), maximo);
+		}
+		return maximo;
+	}
+
+	public void reiniciar() {
+		Arrays.fill(cuentas, 0);
+		total = 0;
+		maximo = 0;
+	}
+
+	// Los valores menores que SUBCUBETAS tienen una cubeta cada uno; los demás, según su bit más alto y los siguientes BITS_SUBCUBETA bits
+	private static int cubeta(long valor) {
+		if (valor < SUBCUBETAS) return (int) valor;
+
+		int desplazamiento = (63 - Long.numberOfLeadingZeros(valor)) - BITS_SUBCUBETA;
+		return (desplazamiento + 1) * SUBCUBETAS + (int) ((valor >>> desplazamiento) & (SUBCUBETAS - 1));
+	}
+
+	private static long limiteSuperior(int cubeta) {
+		if (cubeta < SUBCUBETAS) return cubeta;
+
+		int desplazamiento = cubeta / SUBCUBETAS - 1;
+		long inferior = (long) (SUBCUBETAS + cubeta % SUBCUBETAS) << desplazamiento;
+		return inferior + (1L << desplazamiento) - 1;
+	}
+}
@@ -0,0 +1,69 @@
+package ejerciciosEnClase;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/*
+ * Resultados ya convertidos a texto ASCII, uno por línea, en un arreglo de bytes que crece según se necesite. Escribir un
+ * long no crea ningún objeto (a diferencia de Long.toString o println); solo los resultados BigInteger, que son raros,
+ * pasan por un String.
+ */
+class SalidaBytes {
+	byte[] bytes;
+	int tamano;
+	private ByteBuffer envoltura;	// de bytes, para vaciar() sin crear un ByteBuffer cada vez
+
+	SalidaBytes(int capacidad) {
+		bytes = new byte[Math.max(capacidad, 32)];
+	}
+
+	void escribir(long valor) {
+		asegurar(21);	// 20 bytes para Long.MIN_VALUE más '\n'
+
+		// Los dígitos se sacan del valor negativo, que también alcanza para Long.MIN_VALUE
+		long v = valor;
+		if (v < 0) {
+			bytes[tamano++] = '-';
+		} else {
+			v = -v;
+		}
+
+		int digitos = 1;
+		for (long resto = v / 10; resto != 0; resto /= 10) digitos++;
+
+		for (int d = digitos - 1; d >= 0; d--) {
+			bytes[tamano + d] = (byte) ('0' - v % 10);
+			v /= 10;
+		}
+		tamano += digitos;
+		bytes[tamano++] = '\n';
+	}
+
+	void escribir(BigInteger valor) {
+		byte[] digitos = valor.toString().getBytes(StandardCharsets.US_ASCII);
+		asegurar(digitos.length + 1);
+
+		System.arraycopy(digitos, 0, bytes, tamano, digitos.length);
+		tamano += digitos.length;
+		bytes[tamano++] = '\n';
+	}
+
+	// Escribe todo lo acumulado en el canal y vuelve a empezar
+	void vaciar(WritableByteChannel canal) throws IOException {
+		if (envoltura == null || envoltura.array() != bytes) envoltura = ByteBuffer.wrap(bytes);
+
+		envoltura.limit(tamano).position(0);
+		while (envoltura.hasRemaining()) {
+			canal.write(envoltura);
+		}
+		tamano = 0;
+	}
+
+	private void asegurar(int espacio) {
+		if (tamano + espacio > bytes.length) bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, tamano + espacio));
+	}
+}
@@ -0,0 +1,238 @@
+package ejerciciosEnClase;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.channels.WritableByteChannel;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Evalúa expresiones que llegan sin fin por una entrada (la entrada estándar o un pipe con nombre) y escribe cada
+ * resultado en la salida, para usar el evaluador como un filtro de larga duración dentro de una cadena de procesos.
+ *
+ * Un hilo lector pasa la entrada en bloques de líneas completas al hilo que llama, que evalúa. Los bloques salen de un
+ * conjunto fijo: si la evaluación o la salida se atrasan, el lector se queda esperando un bloque libre y deja de leer, así
+ * que quien escribe en la entrada también se detiene (contrapresión) y la memoria usada no pasa de bloques * TAMANO_BLOQUE.
+ * Los bloques nunca crecen: una línea que no cabe en uno (TAMANO_BLOQUE bytes contando su '\n') se descarta y cuenta como
+ * error de análisis.
+ * Los resultados se escriben en cuanto no hay más entrada pendiente, para que el que lee la salida no espere a que se
+ * llene un buffer.
+ *
+ * Cada intervalo se escribe una línea de métricas: expresiones por segundo, los percentiles 50, 99 y 99.9 de la latencia
+ * de cada expresión (leerla, evaluarla y escribir su resultado en el buffer, sin contar la espera en la cola), y los
+ * errores de análisis (expresiones mal escritas) y de cálculo (división entre cero, desbordamiento) del intervalo, más los
+ * totales. Al terminar la entrada se escribe una última línea.
+ */
+public class ServicioPostfijas {
+	static final int TAMANO_BLOQUE = 1 << 16;
+	private static final int SALIDA = 1 << 16;
+
+	private final Aritmetica aritmetica;
+	private final boolean infija;
+	private final int bloques;
+	private final long intervalo;	// en nanosegundos
+	private final PrintStream metricas;
+
+	private final HistogramaLatencias latencias = new HistogramaLatencias();
+	private long expresiones;
+	private long erroresAnalisis;
+	private long erroresCalculo;
+	private long totalExpresiones;
+	private long totalErroresAnalisis;
+	private long totalErroresCalculo;
+
+	public ServicioPostfijas(Aritmetica aritmetica, boolean infija, int bloques, Duration intervalo, PrintStream metricas) {
+		if (bloques < 2) throw new IllegalArgumentException("Se necesitan al menos dos bloques: " + bloques);
+		if (intervalo.isNegative() || intervalo.isZero()) throw new IllegalArgumentException("El intervalo debe ser positivo: " + intervalo);
+
+		this.aritmetica = aritmetica;
+		this.infija = infija;
+		this.bloques = bloques;
+		this.intervalo = intervalo.toNanos();
+		this.metricas = metricas;
+	}
+
+	// Evalúa hasta que la entrada termina. Devuelve cuántas expresiones se evaluaron sin errores.
+	public long ejecutar(InputStream entrada, WritableByteChannel salida, PrintStream errores) throws IOException, InterruptedException {
+		BlockingQueue<Bloque> libres = new ArrayBlockingQueue<>(bloques);
+		BlockingQueue<Bloque> llenos = new ArrayBlockingQueue<>(bloques);
+		for (int i = 0; i < bloques; i++) libres.add(new Bloque());
+
+		Thread lector = new Thread(() -> leer(entrada, libres, llenos), "lector-postfijas");
+		lector.setDaemon(true);
+		lector.start();
+
+		EvaluadorLineas evaluador = new EvaluadorLineas(aritmetica, infija);
+		SalidaBytes resultados = new SalidaBytes(SALIDA + 64);
+		long numLinea = 0;
+		long evaluadas = 0;
+		long inicioIntervalo = System.nanoTime();
+
+		try {
+			while (true) {
+				long ahora = System.nanoTime();
+				if (ahora - inicioIntervalo >= intervalo) {
+					reportar(ahora - inicioIntervalo);
+					inicioIntervalo = ahora;
+				}
+
+				Bloque bloque = llenos.poll(intervalo - (ahora - inicioIntervalo), TimeUnit.NANOSECONDS);
+				if (bloque == null) continue;	// sin entrada en todo el intervalo: solo toca reportar
+				if (bloque.error != null) throw bloque.error;
+
+				for (int i = 0; i < bloque.descartadas; i++) {	// líneas anteriores al contenido del bloque que no cupieron
+					numLinea++;
+					erroresAnalisis++;
+					informar(errores, numLinea, new IllegalArgumentException("La línea no cabe en " + TAMANO_BLOQUE + " bytes, se descartó"), resultados, salida);
+				}
+
+				byte[] bytes = bloque.bytes;
+				int inicio = 0;
+				while (inicio < bloque.tamano) {
+					int fin = inicio;
+					while (fin < bloque.tamano && bytes[fin] != '\n') fin++;
+					numLinea++;
+
+					long t0 = System.nanoTime();
+					try {
+						if (evaluador.evaluar(bytes, inicio, fin, resultados)) {
+							evaluadas++;
+							expresiones++;
+							latencias.registrar(System.nanoTime() - t0);
+						}
+					} catch (IllegalArgumentException e) {
+						erroresAnalisis++;
+						informar(errores, numLinea, e, resultados, salida);
+					} catch (ArithmeticException e) {
+						erroresCalculo++;
+						informar(errores, numLinea, e, resultados, salida);
+					}
+
+					inicio = fin + 1;
+				}
+
+				boolean ultimo = bloque.ultimo;
+				bloque.tamano = 0;
+				bloque.descartadas = 0;
+				libres.put(bloque);
+
+				if (resultados.tamano >= SALIDA || llenos.isEmpty()) resultados.vaciar(salida);
+				if (ultimo) break;
+			}
+		} finally {
+			lector.interrupt();
+			resultados.vaciar(salida);
+			reportar(System.nanoTime() - inicioIntervalo);
+		}
+
+		return evaluadas;
+	}
+
+	private void informar(PrintStream errores, long numLinea, RuntimeException e, SalidaBytes resultados, WritableByteChannel salida) throws IOException {
+		resultados.vaciar(salida);
+		errores.println("Línea " + numLinea + ": " + e.getMessage());
+	}
+
+	private void reportar(long nanos) {
+		totalExpresiones += expresiones;
+		totalErroresAnalisis += erroresAnalisis;
+		totalErroresCalculo += erroresCalculo;
+
+		metricas.printf("%s expresiones/s=%.0f p50_ns=%d p99_ns=%d p999_ns=%d errores_analisis=%d errores_calculo=%d total_expresiones=%d total_errores_analisis=%d total_errores_calculo=%d%n",
+				Instant.now().truncatedTo(ChronoUnit.SECONDS), expresiones * 1e9 / Math.max(nanos, 1),
+				latencias.percentil(0.50), latencias.percentil(0.99), latencias.percentil(0.999),
+				erroresAnalisis, erroresCalculo, totalExpresiones, totalErroresAnalisis, totalErroresCalculo);
+		metricas.flush();
+
+		latencias.reiniciar();
+		expresiones = 0;
+		erroresAnalisis = 0;
+		erroresCalculo = 0;
+	}
+
+	/*
+	 * Hilo lector: llena un bloque con lo que haya en la entrada y lo entrega en cuanto tiene al menos una línea completa.
+	 * El pedazo de línea que queda al final pasa al principio del siguiente bloque libre. Si el bloque se llena sin ningún
+	 * '\n', la línea no cabe: se tira lo leído y lo que siga hasta el próximo '\n', y el bloque lleva la cuenta para que
+	 * el evaluador las reporte como errores.
+	 */
+	private static void leer(InputStream entrada, BlockingQueue<Bloque> libres, BlockingQueue<Bloque> llenos) {
+		try {
+			Bloque actual = libres.take();
+			int ocupados = 0;
+			boolean descartando = false;
+
+			while (true) {
+				if (ocupados == actual.bytes.length) {	// sólo queda un pedazo de línea que ya no puede terminar aquí
+					actual.descartadas++;
+					descartando = true;
+					ocupados = 0;
+				}
+
+				int leidos;
+				try {
+					leidos = entrada.read(actual.bytes, ocupados, actual.bytes.length - ocupados);
+				} catch (IOException e) {
+					actual.error = e;
+					llenos.put(actual);
+					return;
+				}
+
+				if (leidos < 0) {
+					// La última línea puede no terminar en '\n': va completa en el último bloque
+					actual.tamano = ocupados;
+					actual.ultimo = true;
+					llenos.put(actual);
+					return;
+				}
+
+				int nuevos = ocupados;
+				if (descartando) {
+					int fin = nuevos;
+					while (fin < ocupados + leidos && actual.bytes[fin] != '\n') fin++;
+					if (fin == ocupados + leidos) continue;	// la línea larga sigue: se vuelve a leer sobre lo mismo
+
+					// Lo que sigue al '\n' es el principio de la siguiente línea
+					leidos = ocupados + leidos - (fin + 1);
+					System.arraycopy(actual.bytes, fin + 1, actual.bytes, ocupados, leidos);
+					descartando = false;
+				}
+
+				// Antes de esta lectura no había ningún '\n' pendiente, así que basta buscar en lo recién leído
+				int finLineas = -1;
+				for (int i = nuevos + leidos - 1; i >= nuevos; i--) {
+					if (actual.bytes[i] == '\n') {
+						finLineas = i + 1;
+						break;
+					}
+				}
+				ocupados += leidos;
+				if (finLineas < 0) continue;
+
+				Bloque siguiente = libres.take();
+				int resto = ocupados - finLineas;	// menos que un bloque: se acaba de encontrar un '\n' en éste
+				System.arraycopy(actual.bytes, finLineas, siguiente.bytes, 0, resto);
+
+				actual.tamano = finLineas;
+				llenos.put(actual);
+				actual = siguiente;
+				ocupados = resto;
+			}
+		} catch (InterruptedException e) {
+			// El evaluador terminó antes que la entrada (por ejemplo, porque la salida se cerró)
+		}
+	}
+
+	private static final class Bloque {
+		final byte[] bytes = new byte[TAMANO_BLOQUE];
+		int tamano;
+		boolean ultimo;
+		int descartadas;	// líneas demasiado largas que había antes del contenido
+		IOException error;
+	}
+}
@@ -0,0 +1,47 @@
+package ejerciciosEnClase;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EvaluadorPostfijoTest {
+	// 2^62 * 2^62 se desborda en long antes de llegar al operador al que le falta un operando
+	@Test void faltaOperandoDespuesDeDesbordarEsErrorDeLaLinea() {
+		EvaluadorPostfijo evaluador = new EvaluadorPostfijo(Aritmetica.GRANDE);
+
+		assertThrows(IllegalArgumentException.class, () -> evaluarGrande(evaluador, "2,62,^,2,62,^,*,+"));
+	}
+
+	@Test void sobraUnValorDespuesDeDesbordarEsErrorDeLaLinea() {
+		EvaluadorPostfijo grande = new EvaluadorPostfijo(Aritmetica.GRANDE);
+		EvaluadorPostfijo larga = new EvaluadorPostfijo(Aritmetica.LARGA);
+
+		assertThrows(IllegalArgumentException.class, () -> evaluarGrande(grande, "2,62,^,2,62,^,*,1"));
+		assertThrows(ArithmeticException.class, () -> evaluarLargo(larga, "2,62,^,2,62,^,*,1"));
+	}
+
+	@Test void desbordamientoValidoSeCalculaConBigInteger() {
+		EvaluadorPostfijo evaluador = new EvaluadorPostfijo(Aritmetica.GRANDE);
+
+		assertEquals(BigInteger.TWO.pow(124), evaluarGrande(evaluador, "2,62,^,2,62,^,*"));
+	}
+
+	@Test void divisionEntreCeroNoSeRepiteConBigInteger() {
+		EvaluadorPostfijo evaluador = new EvaluadorPostfijo(Aritmetica.GRANDE);
+
+		ArithmeticException e = assertThrows(ArithmeticException.class, () -> evaluarGrande(evaluador, "2,62,^,0,/"));
+		assertEquals("/ by zero", e.getMessage());
+	}
+
+	private static BigInteger evaluarGrande(EvaluadorPostfijo evaluador, String linea) {
+		evaluador.tokenizar(linea);
+		return evaluador.evaluarGrande();
+	}
+
+	private static long evaluarLargo(EvaluadorPostfijo evaluador, String linea) {
+		evaluador.tokenizar(linea);
+		return evaluador.evaluarLargo();
+	}
+}
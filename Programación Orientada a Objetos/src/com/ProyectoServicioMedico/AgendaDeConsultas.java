@@ -15,11 +15,13 @@ import java.io.BufferedReader;
 import java.io.InputStreamReader;
 import java.io.IOException;
 
-// Read and write objects to/from disk
+// Read objects from disk
 import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.io.FileInputStream;
-import java.io.FileOutputStream;
+
+// Append-only journal for the new appointments
+import java.nio.file.Path;
+import java.time.Duration;
 
 // To manage all information in memory
 import java.util.List;
@@ -27,7 +29,7 @@ import java.util.ArrayList;
 
 // For functional programming methods
 import java.util.Optional;
-import java.util.function.Consumer;
+import java.util.function.BiConsumer;
 
 public class AgendaDeConsultas {
 	public static void main(String[] args) {
@@ -41,10 +43,25 @@ public class AgendaDeConsultas {
 		@SuppressWarnings("unchecked")
 		List<Paciente> patients = (ArrayList<Paciente>) retrieveData("Pacientes.dat").orElseThrow(() -> new RuntimeException("Fallo en carga de información de los pacientes."));
 		
-		@SuppressWarnings("unchecked")
-		List<Consulta> appointments = (ArrayList<Consulta>) retrieveData("Consultas.dat").orElse(new ArrayList<>(50)); // Try to load previously created appointments. If it fails, then just create an empty ArrayList and continue
+		// The appointments are stored as references to the medics and patients just loaded (see ConsultaCodec). They are not loaded here: the list reads each one from the file when it is needed (see MappedAppointments).
+		ConsultaCodec codec = new ConsultaCodec(medics, patients);
+		ConsultaCodec.Snapshot snapshot = retrieveAppointments(codec, "Consultas.dat"); // Try to load previously created appointments. If it fails, then just start with an empty list and continue
+		List<Consulta> appointments = snapshot.appointments();
+
+		// Every new appointment is appended to Consultas.journal as soon as it is created, so the appointments saved after the last export come from there. Once in a while the journal gets folded back into Consultas.dat in the background.
+		AppointmentJournal journal;
+		try {
+			journal = AppointmentJournal.open(Path.of("Consultas.journal"), Path.of("Consultas.dat"), codec, snapshot);
+			journal.compactEvery(Duration.ofMinutes(5), 1000);
+		} catch (IOException e) {
+			throw new RuntimeException("Fallo en carga del diario de consultas.", e);
+		}
 		if (appointments.size() == 0) System.out.println("Se ha creado una nueva base de datos de consultas.\n");
 
+		AppointmentIndex appointmentIndex = new AppointmentIndex(appointments); // Indexes by medic, patient and day, so the reports don't have to scan every appointment. It gets built on the first report.
+		SlotCalendar slotCalendar = new SlotCalendar(appointments, medics); // The hours every medic has taken, to reject double bookings. It gets built on the first booking.
+		BookingService bookingService = new BookingService(slotCalendar, journal); // Every booking goes through here, so this agenda could be shared by several desks at once
+
 		BufferedReader br = new BufferedReader(new InputStreamReader(System.in)); // Needed for IO of the user
 
 		while (true) {
@@ -56,11 +73,11 @@ public class AgendaDeConsultas {
 				if (option == 0) break;
 				
 				switch(option) { // Pattern matching will make things way easier for this specific case.
-					case 1 -> createNewAppointment(br, medics, patients, appointments);
-					case 2 -> exportAppointmentsToDisk.accept(appointments); // Note for myself: I really wanted to use pure functional interfaces, and I get that it's not good to mix programming paradigms, but welp, I'm just trying to put into practice what I'm currently learning and having fun in the process.
-					case 3 -> reportAppointmentPerMedic(br, appointments, medics);
-					case 4 -> reportAppointmentPerPatience(br, appointments, patients);
-					case 5 -> reportAppointmentsPerDay(br, appointments);
+					case 1 -> createNewAppointment(br, medics, patients, bookingService);
+					case 2 -> exportAppointmentsToDisk.accept(journal, appointments); // Note for myself: I really wanted to use pure functional interfaces, and I get that it's not good to mix programming paradigms, but welp, I'm just trying to put into practice what I'm currently learning and having fun in the process.
+					case 3 -> reportAppointmentPerMedic(br, appointmentIndex, medics);
+					case 4 -> reportAppointmentPerPatience(br, appointmentIndex, patients);
+					case 5 -> reportAppointmentsPerDay(br, appointmentIndex);
 					default -> System.err.println("Has ingresado una opción no válida. Verifica la entrada que has proveído.\n");
 				}
 
@@ -73,6 +90,12 @@ public class AgendaDeConsultas {
 			}
 		}
 
+		try {
+			journal.close(); // Waits for any appointment still being written
+		} catch (IOException e) {
+			System.err.println("No ha sido posible cerrar el diario de consultas: " + e.getMessage());
+		}
+
 		System.out.println("Gracias por usar nuestro sistema de agendado de citas.");
 	} // End of main method.
 
@@ -89,6 +112,16 @@ public class AgendaDeConsultas {
 		return Optional.empty();
 	}
 
+	static ConsultaCodec.Snapshot retrieveAppointments(ConsultaCodec codec, String fileName) {
+		try {
+			return codec.read(Path.of(fileName));
+		} catch (IOException e) {
+			System.err.println("El archivo " + fileName + "  no pudo ser leído o no existe.");
+		}
+
+		return ConsultaCodec.Snapshot.empty();
+	}
+
 	static int menu(BufferedReader br, int option) throws IOException, NumberFormatException {
 		System.out.println("+------------------------------------+\n");
 		System.out.println("Control de citas médicas (v2024.0.2)");
@@ -99,7 +132,7 @@ public class AgendaDeConsultas {
 		return Integer.parseInt(br.readLine());
 	}
 
-	static void createNewAppointment(BufferedReader br, List<Medico> medics, List<Paciente> patients, List<Consulta> appointments) throws IOException, NumberFormatException {
+	static void createNewAppointment(BufferedReader br, List<Medico> medics, List<Paciente> patients, BookingService bookingService) throws IOException, NumberFormatException {
 		System.out.println("+------------------------------------+\n");
 		System.out.println("\tAgendar una nueva cita");
 		System.out.println("+------------------------------------+\n");
@@ -152,14 +185,36 @@ public class AgendaDeConsultas {
 		System.out.print("Ingresa la hora de la cita, en horario de 24 horas:\nEj: \t8 para las 8:00 AM\n\t15 para las 3:00 PM\n\n>> ");
 		int hour = Math.max(1, Math.min(23, Integer.parseInt(br.readLine()) )); // Safety guard to ensure that hour will always be between 1 and 23. We are a 24 hours hospital ya know.
 
-		if (appointments.add(new Consulta(selectedPatience, selectedMedic, month, day, hour)) ) {
-			System.out.print("Cita agendada exitosamente. ¿Agendar una nueva cita?\n   1) Sí, agendar una nueva cita.\n   2) No, volver al menú principal.\n\n>> ");
-			int doAddNewAppointment = Integer.parseInt(br.readLine());
-			
-			if (doAddNewAppointment == 1) createNewAppointment(br, medics, patients, appointments);
-		} else {
-			System.err.println("Ha ocurrido un error registando la cita.\nRegresando al menú principal.\n\n");
+		// A medic can't be in two appointments at the same time. Instead of just refusing, suggest the closest free hours.
+		boolean booked;
+		try {
+			booked = bookingService.book(selectedPatience, selectedMedic, month, day, hour); // Only this appointment is written, not the whole list. The reports index picks it up from the list on the next report.
+		} catch (IOException e) {
+			// The booking was undone, and the journal doesn't take any more appointments until the program starts again
+			System.err.println("No ha sido posible guardar la cita en el almacenamiento: " + e.getMessage() + "\nCita no registrada; el horario sigue libre. Reinicia el programa cuando el almacenamiento esté disponible para volver a agendar.\n");
+			return;
+		}
+
+		if (!booked) {
+			SlotCalendar slotCalendar = bookingService.calendar();
+			System.err.println("El médico " + selectedMedic.getNombre() + " ya tiene una cita el " + day + "/" + month + " a las " + hour + ":00.");
+
+			SlotCalendar.Slot sameMedic = slotCalendar.nextFree(selectedMedic.getCedula(), month, day, hour);
+			SlotCalendar.Slot anyMedic = slotCalendar.nextFreeAnyMedic(month, day, hour);
+			if (sameMedic != null) System.err.println("Su siguiente horario libre es el " + sameMedic.day() + "/" + sameMedic.month() + " a las " + sameMedic.hour() + ":00.");
+			if (anyMedic != null && anyMedic.cedula() != selectedMedic.getCedula()) {
+				medics.stream().filter((m) -> m.getCedula() == anyMedic.cedula()).findFirst().ifPresent((m) -> System.err.println("El primer médico libre desde esa hora es " + m.getNombre() + ", el " + anyMedic.day() + "/" + anyMedic.month() + " a las " + anyMedic.hour() + ":00."));
+			}
+			if (sameMedic == null && anyMedic == null) System.err.println("No quedan horarios libres en lo que resta del año.");
+
+			System.err.println("Cita no registrada. Regresando al menú principal.\n");
+			return;
 		}
+
+		System.out.print("Cita agendada exitosamente. ¿Agendar una nueva cita?\n   1) Sí, agendar una nueva cita.\n   2) No, volver al menú principal.\n\n>> ");
+		int doAddNewAppointment = Integer.parseInt(br.readLine());
+		
+		if (doAddNewAppointment == 1) createNewAppointment(br, medics, patients, bookingService);
 	}
 
 	private static Medico findMedicByIdOrDisplayList(BufferedReader br, String input, List<Medico> medics) throws IOException {
@@ -202,9 +257,10 @@ public class AgendaDeConsultas {
 		return null; // Return null for invalid input.
 	}
 
-	static Consumer<List<Consulta>> exportAppointmentsToDisk = (appointments) -> {
-		try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream("Consultas.dat"))) {
-			oos.writeObject(appointments);
+	// The appointments are already saved one by one in the journal. Exporting now folds the journal into Consultas.dat right away instead of waiting for the background compaction.
+	static BiConsumer<AppointmentJournal, List<Consulta>> exportAppointmentsToDisk = (journal, appointments) -> {
+		try {
+			journal.compact();
 			System.out.println("Citas guardadas en el almacenamiento exitosamente.\n");
 		} catch (IOException e) {
 			System.err.println("No ha sido posible guardar un registro de las consultas debido a un error de lectura/escritura con el almacenamiento.\nImprimiendo en pantalla todas las citas:\n");
@@ -213,7 +269,7 @@ public class AgendaDeConsultas {
 		}
 	};
 
-	static void reportAppointmentPerMedic(BufferedReader br, List<Consulta> appointments, List<Medico> medics) throws IOException {
+	static void reportAppointmentPerMedic(BufferedReader br, AppointmentIndex appointmentIndex, List<Medico> medics) throws IOException {
         System.out.println("+---------------------------------+\n");
         System.out.println("Reporte de citas pendientes por médico\n");
         System.out.println("+---------------------------------+\n");
@@ -265,15 +321,15 @@ public class AgendaDeConsultas {
                 System.out.println("Has ingresado una opción no válida. Verifica la entrada que has proveído.\n");
             }
         }
-        boolean hayCitas=false;
-                for (int i = 0; i < appointments.size(); i++) {
-                    if (appointments.get(i).getMedico().getCedula() == medics.get(index).getCedula()){
-                        if(!hayCitas){
-                            System.out.println("--------------------------------");
-                            System.out.println("Fecha\tHora\tPaciente");
-                            System.out.println("--------------------------------");}
-                        System.out.println(appointments.get(i).getDia() + "/" + appointments.get(i).getMes() + "\t" + appointments.get(i).getHora() + "\t" + appointments.get(i).getPaciente().getNombre());
-                        hayCitas=true;}}
+        // Only the appointments of the selected medic, straight from the index
+        List<Consulta> appointments = appointmentIndex.byMedic(medics.get(index).getCedula());
+        boolean hayCitas = !appointments.isEmpty();
+                if(hayCitas){
+                    System.out.println("--------------------------------");
+                    System.out.println("Fecha\tHora\tPaciente");
+                    System.out.println("--------------------------------");
+                    for (Consulta appointment : appointments) {
+                        System.out.println(appointment.getDia() + "/" + appointment.getMes() + "\t" + appointment.getHora() + "\t" + appointment.getPaciente().getNombre());}}
                 if(!hayCitas){
                     System.out.println("\nNo se encontraron citas agendadas para " + medics.get(index).getNombre() + "\n");
                 }else{
@@ -281,7 +337,7 @@ public class AgendaDeConsultas {
                 }
     }
 
-	static void reportAppointmentPerPatience(BufferedReader br, List<Consulta> appointments, List<Paciente> patients) throws IOException {
+	static void reportAppointmentPerPatience(BufferedReader br, AppointmentIndex appointmentIndex, List<Paciente> patients) throws IOException {
         System.out.println("+---------------------------------+\n");
         System.out.println("Reporte de citas por paciente\n");
         System.out.println("+---------------------------------+\n");
@@ -333,15 +389,15 @@ public class AgendaDeConsultas {
                 System.out.println("Has ingresado una opción no válida. Verifica la entrada que has proveído.\n");
             }
         }
-        boolean hayCitas=false;
-                for (int i = 0; i < appointments.size(); i++) {
-                    if (appointments.get(i).getPaciente().getExpediente() == patients.get(index).getExpediente()){
-                        if(!hayCitas){
-                            System.out.println("--------------------------------");
-                            System.out.println("Fecha\tHora\tMédico");
-                            System.out.println("--------------------------------");}
-                        System.out.println(appointments.get(i).getDia() + "/" + appointments.get(i).getMes() + "\t" + appointments.get(i).getHora() + "\t" + appointments.get(i).getMedico().getNombre());
-                        hayCitas=true;}}
+        // Only the appointments of the selected patient, straight from the index
+        List<Consulta> appointments = appointmentIndex.byPatient(patients.get(index).getExpediente());
+        boolean hayCitas = !appointments.isEmpty();
+                if(hayCitas){
+                    System.out.println("--------------------------------");
+                    System.out.println("Fecha\tHora\tMédico");
+                    System.out.println("--------------------------------");
+                    for (Consulta appointment : appointments) {
+                        System.out.println(appointment.getDia() + "/" + appointment.getMes() + "\t" + appointment.getHora() + "\t" + appointment.getMedico().getNombre());}}
                 if(!hayCitas){
                     System.out.println("\nNo se encontraron citas agendadas para " + patients.get(index).getNombre() + "\n");
                 }else{
@@ -350,7 +406,7 @@ public class AgendaDeConsultas {
     }
 
 
-	static void reportAppointmentsPerDay (BufferedReader br , List<Consulta> appointments) throws IOException, NumberFormatException {
+	static void reportAppointmentsPerDay (BufferedReader br , AppointmentIndex appointmentIndex) throws IOException, NumberFormatException {
 		System.out.println("+-----------------------------------+\n");
         System.out.println("\tReporte de citas por día\n");
         System.out.println("+-----------------------------------+\n");
@@ -368,8 +424,9 @@ public class AgendaDeConsultas {
 
 		int day = Math.max(1, Math.min(safetyGuardDayLimit, Integer.parseInt(br.readLine()) )); // It will always store a number between 1 and the last day of the selected month. Good!
 
-		 // Get the total amount of appointments registered for the specified date
-		int totalOfAppointments = (int) appointments.stream().filter((a) -> a.getMes() == month && a.getDia() == day).count();
+		 // Get the appointments registered for the specified date. The index already has them grouped by day, so there is no need to go through the whole list to count them and then again to print them
+		List<Consulta> appointmentsOfTheDay = appointmentIndex.byDay(month, day);
+		int totalOfAppointments = appointmentsOfTheDay.size();
 		if (totalOfAppointments == 0) { // If there are no appointments, return to main menu.
 			System.out.printf("\nNo hay citas registradas para el mes %s día %d.\n", month, day);
 			return;
@@ -379,9 +436,7 @@ public class AgendaDeConsultas {
 		System.out.printf("\nCitas registradas para el mes %s día %d:\n", month, day);
 		System.out.println("+---------------------------------------+\n");
 		System.out.println("Paciente\tMédico\tMes\tDia\tHora");
-		appointments.stream()
-					.filter((a) -> a.getMes() == month && a.getDia() == day)
-					.forEach((a) -> System.out.println(a.toString()));
+		appointmentsOfTheDay.forEach((a) -> System.out.println(a.toString()));
 
 		System.out.printf("\nTotal de citas registradas para el día: %d\n\n", totalOfAppointments);
 	} 
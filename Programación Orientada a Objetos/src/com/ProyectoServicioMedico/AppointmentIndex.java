@@ -0,0 +1,90 @@
+package com.ProyectoServicioMedico;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Secondary indexes over the appointments list, so that every report only touches the appointments it is going to print.
+// Each index maps a key to the positions in the appointments list of the appointments with that key, in list order:
+//	- by medic: Medico.getCedula()
+//	- by patient: Paciente.getExpediente()
+//	- by day: the month and day packed in a single int (see packDay)
+// The list must only grow at the end. Every query first indexes the appointments added since the previous one, so nothing has to be done when an appointment is added, and nothing is read from the list until the first report (with a MappedAppointments, startup doesn't decode any appointment because of the index).
+// A Consulta is assumed not to change its medic, patient or date once it has been added.
+// Several threads can run reports while others book (see BookingService). Catching up takes a lock, but only when the list has grown since the last query; otherwise a report reads the maps and the position lists without any lock.
+public final class AppointmentIndex {
+	private final List<Consulta> appointments;
+	private volatile int indexed; // appointments [0, indexed) are already in the maps
+
+	private final Map<Integer, Positions> byMedic = new ConcurrentHashMap<>();
+	private final Map<Integer, Positions> byPatient = new ConcurrentHashMap<>();
+	private final Map<Integer, Positions> byDay = new ConcurrentHashMap<>();
+
+	public AppointmentIndex(List<Consulta> appointments) {
+		this.appointments = appointments;
+	}
+
+	// The returned lists are read-only views, and get(i) reads the appointment from the appointments list
+	public List<Consulta> byMedic(int cedula) {
+		return view(byMedic, cedula);
+	}
+
+	public List<Consulta> byPatient(int expediente) {
+		return view(byPatient, expediente);
+	}
+
+	public List<Consulta> byDay(int month, int day) {
+		return view(byDay, packDay(month, day));
+	}
+
+	// Day in the low 5 bits (1 to 31) and month above them, so every (month, day) pair gets a different key
+	static int packDay(int month, int day) {
+		return (month << 5) | day;
+	}
+
+	private List<Consulta> view(Map<Integer, Positions> index, int key) {
+		if (indexed < appointments.size()) catchUp();
+
+		Positions positions = index.get(key);
+		return (positions == null) ? Collections.emptyList() : positions;
+	}
+
+	private synchronized void catchUp() {
+		int size = appointments.size();
+		for (int i = indexed; i < size; i++) {
+			Consulta appointment = appointments.get(i);
+			byMedic.computeIfAbsent(appointment.getMedico().getCedula(), (k) -> new Positions()).addPosition(i);
+			byPatient.computeIfAbsent(appointment.getPaciente().getExpediente(), (k) -> new Positions()).addPosition(i);
+			byDay.computeIfAbsent(packDay(appointment.getMes(), appointment.getDia()), (k) -> new Positions()).addPosition(i);
+		}
+		indexed = size;
+	}
+
+	// Growable int array seen as the appointments at those positions, so the index doesn't keep decoded appointments alive.
+	// Only catchUp() adds positions; size is written last, so a reader that sees it also sees the positions below it and an array big enough for them.
+	private final class Positions extends AbstractList<Consulta> implements RandomAccess {
+		private volatile int[] items = new int[4];
+		private volatile int size;
+
+		void addPosition(int position) {
+			if (size == items.length) items = Arrays.copyOf(items, size * 2);
+			items[size] = position;
+			size = size + 1;
+		}
+
+		@Override
+		public Consulta get(int i) {
+			if (i < 0 || i >= size) throw new IndexOutOfBoundsException(i);
+			return appointments.get(items[i]);
+		}
+
+		@Override
+		public int size() {
+			return size;
+		}
+	}
+}
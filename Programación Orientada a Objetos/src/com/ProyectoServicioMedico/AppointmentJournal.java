@@ -0,0 +1,383 @@
+package com.ProyectoServicioMedico;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+// Append-only journal of new appointments, so saving one appointment costs one small record instead of rewriting the whole Consultas.dat.
+//
+// File layout:
+//	header:	magic (int) and base (long), the number of the first record of this file; records are numbered across journals
+//	records:	payload length (int), CRC32 of the payload (int) and the payload, which is the ConsultaCodec record of the appointment
+// Records store the medic and the patient by their ids, and they are resolved against Medicos.dat and Pacientes.dat on replay.
+//
+// Saving is a group commit: save() queues the record and waits, and a single writer thread writes everything that is queued and calls force() once for all of it, so several appointments saved at the same time share one fsync.
+// Once a batch is on disk, the writer adds its appointments to the appointments list of the snapshot, in the order of their records, and only then wakes up whoever waits for them.
+// So the list and the journal always have the appointments in the same order, and the list only has appointments that are already stored.
+// If a write or a force() fails, the batch is cut off the file again (none of it was acknowledged, so none of it may come back on replay) and never reaches the list, every waiting save() gets the IOException, and the journal refuses every later append until it is opened again. BookingService undoes those bookings.
+// The queue is guarded by a ReentrantLock instead of synchronized because the desks that wait in awaitDurable() can be virtual threads (see BookingService), and a virtual thread that waits inside synchronized keeps its carrier thread blocked.
+//
+// Every snapshot stores its journal mark: the number of the first record it doesn't include. Startup replays the records from that mark on top of the snapshot. A record whose length or checksum doesn't match (an interrupted final write) ends the replay, and the file is truncated right before it.
+// Compaction folds the journal into a new snapshot in the background. It only reads the files (never the in-memory list), and every step can be interrupted safely:
+//	1. The new snapshot (old snapshot + the payloads of the first K journal records, with mark base + K) is written to a temporary file and moved over Consultas.dat. Nothing gets decoded: see ConsultaCodec.append.
+//	2. The records after those K are copied to a new journal whose base is base + K, which then replaces the old one.
+// If the program stops between both steps, the old journal is still there but the replay skips every record below the mark of the new snapshot.
+public final class AppointmentJournal implements Closeable {
+	private static final int MAGIC = 0x434A3031; // "CJ01"
+	private static final int HEADER = Integer.BYTES + Long.BYTES;
+	private static final int PAYLOAD = ConsultaCodec.RECORD;
+	private static final int RECORD = 2 * Integer.BYTES + PAYLOAD;
+
+	private final Path journalFile;
+	private final Path snapshotFile;
+	private final ConsultaCodec codec;
+	private final List<Consulta> appointments; // the list of the snapshot; the journal adds every appointment to it once it is durable
+
+	// Guarded by lock: records queued for the writer thread. changed is signalled when something is queued, written or closed.
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition changed = lock.newCondition();
+	private ByteBuffer queued = ByteBuffer.allocate(64 * RECORD);
+	private List<Consulta> queuedAppointments = new ArrayList<>(); // the appointments of the records in queued, in the same order
+	private long appended; // records queued since the journal was opened
+	private long durable; // of those, how many are already forced to disk
+	private IOException failure;
+	private boolean closed;
+
+	private final Object compaction = new Object(); // only one compaction at a time
+
+	// Guarded by io: the journal file itself. Only the writer thread and the compaction touch it.
+	private final Object io = new Object();
+	private FileChannel channel;
+	private long base;
+	private int records; // records in the journal file
+	private ByteBuffer writing = ByteBuffer.allocate(64 * RECORD);
+	private List<Consulta> writingAppointments = new ArrayList<>(); // only the writer thread touches it
+
+	private final Thread writer;
+	private ScheduledExecutorService compactor;
+
+	private AppointmentJournal(Path journalFile, Path snapshotFile, ConsultaCodec codec, List<Consulta> appointments) {
+		this.journalFile = journalFile;
+		this.snapshotFile = snapshotFile;
+		this.codec = codec;
+		this.appointments = appointments;
+
+		this.writer = new Thread(this::writeLoop, "diario-consultas");
+		this.writer.setDaemon(true);
+	}
+
+	// Opens (or creates) the journal and adds to the appointments of the snapshot just loaded every appointment that only the journal has.
+	// From then on, every appointment saved is added to that same list once it is on disk. The list must be safe to read while it grows (MappedAppointments is).
+	public static AppointmentJournal open(Path journalFile, Path snapshotFile, ConsultaCodec codec, ConsultaCodec.Snapshot snapshot) throws IOException {
+		AppointmentJournal journal = new AppointmentJournal(journalFile, snapshotFile, codec, snapshot.appointments());
+
+		if (Files.exists(journalFile)) {
+			journal.channel = FileChannel.open(journalFile, StandardOpenOption.READ, StandardOpenOption.WRITE);
+			try {
+				journal.replayAtStartup(snapshot);
+			} catch (IOException e) {
+				journal.channel.close();
+				throw e;
+			}
+		} else {
+			journal.channel = createJournal(journalFile, snapshot.journalMark(), null, 0, 0);
+			journal.base = snapshot.journalMark();
+		}
+
+		journal.writer.start();
+		return journal;
+	}
+
+	// Saves the appointment and returns once it is on disk and in the appointments list
+	public void save(Consulta appointment) throws IOException {
+		awaitDurable(append(appointment));
+	}
+
+	// Queues the appointment without waiting. Returns the value to pass to awaitDurable; the appointment is in the list once that returns.
+	public long append(Consulta appointment) throws IOException {
+		lock.lock();
+		try {
+			if (closed) throw new IOException("El diario de consultas ya está cerrado.");
+			if (failure != null) throw failure;
+
+			if (queued.remaining() < RECORD) {
+				ByteBuffer bigger = ByteBuffer.allocate(queued.capacity() * 2);
+				queued.flip();
+				queued = bigger.put(queued);
+			}
+
+			int start = queued.position();
+			queued.position(start + 2 * Integer.BYTES);
+			ConsultaCodec.encode(appointment, queued);
+
+			CRC32 crc = new CRC32();
+			crc.update(queued.array(), start + 2 * Integer.BYTES, PAYLOAD);
+			queued.putInt(start, PAYLOAD);
+			queued.putInt(start + Integer.BYTES, (int) crc.getValue());
+			queuedAppointments.add(appointment);
+
+			appended++;
+			changed.signalAll(); // wake up the writer
+			return appended;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public void awaitDurable(long ticket) throws IOException {
+		lock.lock();
+		try {
+			while (durable < ticket) {
+				if (failure != null) throw failure;
+				changed.await();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Se interrumpió la espera del diario de consultas.");
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	// Number of appointments that are only in the journal and not in the snapshot yet
+	public int pendingRecords() {
+		synchronized (io) {
+			return records;
+		}
+	}
+
+	// Runs compact() in a background thread every period, whenever the journal has at least minRecords records
+	public void compactEvery(Duration period, int minRecords) {
+		lock.lock();
+		try {
+			if (compactor != null) compactor.shutdownNow();
+
+			compactor = Executors.newSingleThreadScheduledExecutor((task) -> {
+				Thread thread = new Thread(task, "compactacion-consultas");
+				thread.setDaemon(true);
+				return thread;
+			});
+
+			compactor.scheduleWithFixedDelay(() -> {
+				try {
+					if (pendingRecords() >= minRecords) compact();
+				} catch (IOException e) {
+					System.err.println("No ha sido posible compactar el diario de consultas: " + e.getMessage());
+				}
+			}, period.toMillis(), period.toMillis(), TimeUnit.MILLISECONDS);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	// Folds every record already on disk into a new snapshot and starts a new journal with the rest
+	public void compact() throws IOException {
+		synchronized (compaction) {
+			long end;
+			int folded;
+			long oldBase;
+			synchronized (io) {
+				end = HEADER + (long) records * RECORD; // the writer forces everything it counts before releasing io, so all of it is durable
+				folded = records;
+				oldBase = base;
+			}
+			if (folded == 0) return;
+
+			// 1. New snapshot, without holding io: saves keep going to the journal meanwhile
+			ByteBuffer payloads;
+			try (FileChannel reader = FileChannel.open(journalFile, StandardOpenOption.READ)) {
+				payloads = readPayloads(reader, HEADER, end);
+			}
+			if (payloads.remaining() != folded * PAYLOAD) throw new IOException("El archivo " + journalFile + " cambió mientras se compactaba.");
+			codec.append(snapshotFile, payloads, oldBase);
+
+			// 2. New journal with only the records that arrived after the snapshot
+			synchronized (io) {
+				FileChannel old = channel;
+				channel = createJournal(journalFile, oldBase + folded, old, end, HEADER + (long) records * RECORD);
+				old.close();
+				base = oldBase + folded;
+				records -= folded;
+			}
+		}
+	}
+
+	// Writes whatever is still queued and stops the writer and the compaction
+	@Override
+	public void close() throws IOException {
+		lock.lock();
+		try {
+			if (closed) return;
+			closed = true;
+			changed.signalAll();
+			if (compactor != null) compactor.shutdownNow();
+		} finally {
+			lock.unlock();
+		}
+
+		try {
+			writer.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+
+		synchronized (io) {
+			channel.close();
+		}
+
+		lock.lock();
+		try {
+			if (failure != null) throw failure;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private void writeLoop() {
+		while (true) {
+			long batchEnd;
+			lock.lock();
+			try {
+				while (queued.position() == 0 && !closed) {
+					try {
+						changed.await();
+					} catch (InterruptedException e) {
+						return;
+					}
+				}
+				if (queued.position() == 0) return; // closed and nothing left
+
+				// Swap buffers: appends go on into the empty one while this batch is written
+				ByteBuffer batch = queued;
+				queued = writing;
+				writing = batch;
+				List<Consulta> batchAppointments = queuedAppointments;
+				queuedAppointments = writingAppointments;
+				writingAppointments = batchAppointments;
+				batchEnd = appended;
+			} finally {
+				lock.unlock();
+			}
+
+			IOException error = null;
+			synchronized (io) {
+				long start = HEADER + (long) records * RECORD;
+				try {
+					writing.flip();
+					int count = writing.remaining() / RECORD;
+					while (writing.hasRemaining()) {
+						channel.write(writing, channel.size());
+					}
+					channel.force(false);
+					records += count;
+				} catch (IOException e) {
+					error = e;
+					try {
+						channel.truncate(start);
+						channel.force(false);
+					} catch (IOException truncation) {
+						error.addSuppressed(truncation); // then the next start can still replay part of this batch
+					}
+				}
+				writing.clear();
+			}
+
+			// In the order of the records, and before anyone is told they are durable
+			if (error == null) appointments.addAll(writingAppointments);
+			writingAppointments.clear();
+
+			lock.lock();
+			try {
+				if (error != null) {
+					failure = error;
+				} else {
+					durable = batchEnd;
+				}
+				changed.signalAll();
+			} finally {
+				lock.unlock();
+			}
+			if (error != null) return;
+		}
+	}
+
+	private void replayAtStartup(ConsultaCodec.Snapshot snapshot) throws IOException {
+		ByteBuffer header = ByteBuffer.allocate(HEADER);
+		while (header.hasRemaining() && channel.read(header, header.position()) > 0) { }
+		if (header.hasRemaining() || header.getInt(0) != MAGIC) throw new IOException("El archivo " + journalFile + " no es un diario de consultas válido.");
+		base = header.getLong(Integer.BYTES);
+
+		if (snapshot.journalMark() < base) System.err.println("El diario de consultas empieza en el registro " + base + ", pero " + snapshotFile + " solo llega al " + snapshot.journalMark() + ". Se cargarán las citas disponibles.");
+
+		long size = channel.size();
+		ByteBuffer payloads = readPayloads(channel, HEADER, size);
+		records = payloads.remaining() / PAYLOAD;
+		long valid = HEADER + (long) records * RECORD;
+
+		for (int i = 0; i < records; i++) {
+			if (base + i < snapshot.journalMark()) continue; // already in the snapshot
+			snapshot.appointments().add(codec.decode(payloads, i * PAYLOAD));
+		}
+
+		if (valid < size) {
+			System.err.println("Se descartó un registro incompleto al final del diario de consultas (" + (size - valid) + " bytes).");
+			channel.truncate(valid);
+			channel.force(true);
+		}
+	}
+
+	// The payloads of the records in [start, end), one after the other. A record whose length or checksum doesn't match ends the reading.
+	private static ByteBuffer readPayloads(FileChannel source, long start, long end) throws IOException {
+		ByteBuffer payloads = ByteBuffer.allocate((int) Math.min(Integer.MAX_VALUE - RECORD, Math.max(0, end - start) / RECORD * PAYLOAD));
+		ByteBuffer record = ByteBuffer.allocate(RECORD);
+		CRC32 crc = new CRC32();
+
+		for (long position = start; end - position >= RECORD && payloads.hasRemaining(); position += RECORD) {
+			record.clear();
+			while (record.hasRemaining() && source.read(record, position + record.position()) > 0) { }
+			if (record.hasRemaining() || record.getInt(0) != PAYLOAD) break;
+
+			crc.reset();
+			crc.update(record.array(), 2 * Integer.BYTES, PAYLOAD);
+			if (record.getInt(Integer.BYTES) != (int) crc.getValue()) break;
+
+			payloads.put(record.array(), 2 * Integer.BYTES, PAYLOAD);
+		}
+
+		return payloads.flip();
+	}
+
+	// Writes a new journal with the given base and a copy of old[from, to), and puts it in place of the current file
+	private static FileChannel createJournal(Path journalFile, long base, FileChannel old, long from, long to) throws IOException {
+		Path temporary = journalFile.resolveSibling(journalFile.getFileName() + ".tmp");
+
+		try (FileChannel created = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+			ByteBuffer header = ByteBuffer.allocate(HEADER).putInt(MAGIC).putLong(base).flip();
+			while (header.hasRemaining()) created.write(header);
+
+			long copied = 0;
+			while (old != null && from + copied < to) {
+				copied += old.transferTo(from + copied, to - from - copied, created);
+			}
+			created.force(true);
+		}
+
+		Files.move(temporary, journalFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		return FileChannel.open(journalFile, StandardOpenOption.READ, StandardOpenOption.WRITE);
+	}
+}
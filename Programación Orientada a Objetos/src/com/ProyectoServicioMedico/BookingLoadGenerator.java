@@ -0,0 +1,118 @@
+package com.ProyectoServicioMedico;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+// Load test for BookingService: many desks (one virtual thread each) booking at the same time into one agenda, with the journal on disk.
+// Usage: java com.ProyectoServicioMedico.BookingLoadGenerator [desks] [bookings per desk] (5000 and 20 by default)
+// Every desk asks for a random medic, day and hour. When the slot is taken it retries with the next free hour of that medic, and if the medic has none left, with a random medic.
+// At the end it prints bookings per second and the retries, and checks that no medic got two appointments at the same hour and that the journal has every booking, in the same order as the list.
+public class BookingLoadGenerator {
+	public static void main(String[] args) throws Exception {
+		int desks = (args.length > 0) ? Integer.parseInt(args[0]) : 5000;
+		int bookingsPerDesk = (args.length > 1) ? Integer.parseInt(args[1]) : 20;
+
+		List<Medico> medics = new ArrayList<>();
+		for (int i = 1; i <= 50; i++) medics.add(new Medico(1000 + i, "Médico " + i));
+		List<Paciente> patients = new ArrayList<>();
+		for (int i = 1; i <= 2000; i++) patients.add(new Paciente(i, "Paciente " + i, "5550000000", 30, 70, 1.70));
+
+		ConsultaCodec codec = new ConsultaCodec(medics, patients);
+		Path directory = Files.createTempDirectory("consultas");
+		Path journalFile = directory.resolve("Consultas.journal");
+		Path snapshotFile = directory.resolve("Consultas.dat");
+
+		ConsultaCodec.Snapshot snapshot = ConsultaCodec.Snapshot.empty();
+		List<Consulta> appointments = snapshot.appointments();
+		SlotCalendar calendar = new SlotCalendar(appointments, medics);
+		AppointmentIndex index = new AppointmentIndex(appointments);
+		LongAdder retries = new LongAdder();
+		LongAdder unbooked = new LongAdder();
+		LongAdder reports = new LongAdder();
+		long booked;
+		List<Long> order = new ArrayList<>();
+
+		try (AppointmentJournal journal = AppointmentJournal.open(journalFile, snapshotFile, codec, snapshot)) {
+			BookingService service = new BookingService(calendar, journal);
+
+			long start = System.nanoTime();
+			try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+				for (int desk = 0; desk < desks; desk++) {
+					executor.submit(() -> {
+						ThreadLocalRandom random = ThreadLocalRandom.current();
+						for (int i = 0; i < bookingsPerDesk; i++) {
+							Paciente patient = patients.get(random.nextInt(patients.size()));
+							Medico medic = medics.get(random.nextInt(medics.size()));
+							int month = 1 + random.nextInt(SlotCalendar.MONTHS);
+							int day = 1 + random.nextInt(SlotCalendar.daysIn(month));
+							int hour = 1 + random.nextInt(SlotCalendar.HOURS - 1);
+
+							while (!service.book(patient, medic, month, day, hour)) {
+								retries.increment();
+								SlotCalendar.Slot next = calendar.nextFree(medic.getCedula(), month, day, hour);
+								if (next == null) next = calendar.nextFreeAnyMedic(1, 1, 1);
+								if (next == null) {
+									unbooked.increment(); // the whole year is full, so this desk is done
+									return null;
+								}
+
+								int cedula = next.cedula();
+								medic = medics.stream().filter((m) -> m.getCedula() == cedula).findFirst().orElseThrow();
+								month = next.month();
+								day = next.day();
+								hour = next.hour();
+							}
+
+							// A desk also reads while others book: the day report, without locks
+							if (index.byDay(month, day).isEmpty()) throw new IllegalStateException("El reporte del " + day + "/" + month + " no tiene la cita recién agendada.");
+							reports.increment();
+						}
+						return null;
+					});
+				}
+			}
+			long nanos = System.nanoTime() - start;
+
+			booked = service.booked();
+			long attempts = booked + service.conflicts();
+			System.out.printf("%,d mostradores x %,d citas: %,d citas en %.2f s%n", desks, bookingsPerDesk, booked, nanos / 1e9);
+			System.out.printf("citas/s=%.0f intentos=%,d reintentos_por_conflicto=%,d (%.2f %% de los intentos) reintentos_cas=%,d sin_lugar=%,d reportes=%,d%n",
+					booked * 1e9 / nanos, attempts, retries.sum(), 100.0 * service.conflicts() / Math.max(attempts, 1), calendar.casRetries(), unbooked.sum(), reports.sum());
+
+			Set<Long> slots = new HashSet<>();
+			for (Consulta appointment : appointments) {
+				if (!slots.add(slot(appointment))) throw new IllegalStateException("Cita doble: " + appointment);
+			}
+			if (appointments.size() != booked) throw new IllegalStateException("La lista tiene " + appointments.size() + " citas y se agendaron " + booked + ".");
+			for (Consulta appointment : appointments) order.add(slot(appointment));
+		}
+
+		// Reopening replays the journal: it must bring back every booking
+		ConsultaCodec.Snapshot reopened = ConsultaCodec.Snapshot.empty();
+		try {
+			AppointmentJournal.open(journalFile, snapshotFile, codec, reopened).close();
+			if (reopened.appointments().size() != booked) throw new IllegalStateException("El diario recuperó " + reopened.appointments().size() + " de " + booked + " citas.");
+			for (int i = 0; i < order.size(); i++) {
+				if (slot(reopened.appointments().get(i)) != order.get(i)) throw new IllegalStateException("La cita " + i + " del diario no es la misma que la de la lista.");
+			}
+			System.out.printf("sin citas dobles; el diario recuperó las %,d citas en el orden de la lista%n", booked);
+		} finally {
+			Files.deleteIfExists(journalFile);
+			Files.deleteIfExists(snapshotFile);
+			Files.deleteIfExists(directory);
+		}
+	}
+
+	// Medic and hour: tells apart every appointment of one run, since no slot is booked twice
+	private static long slot(Consulta appointment) {
+		return ((long) appointment.getMedico().getCedula() << 32) | SlotCalendar.slot(appointment.getMes(), appointment.getDia(), appointment.getHora());
+	}
+}
@@ -0,0 +1,77 @@
+package com.ProyectoServicioMedico;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.atomic.LongAdder;
+
+// Books appointments into one shared agenda from several reception desks (threads) at the same time.
+//	1. The slot is taken in the SlotCalendar with a compare-and-set, without locks: of two desks that want the same medic at the same hour, exactly one gets it and the other one gets false right away.
+//	2. The appointment is queued in the journal, and the desk waits until its record is on disk. Desks that book at the same time share the fsync (see AppointmentJournal).
+//	3. The journal adds it to the appointments list right after the fsync, in the order of the journal, before the desk wakes up. From then on the reports show it.
+// If the record can't be written, the slot is given back and nothing else changed: the booking didn't happen.
+// Between steps 1 and 3 (one group commit) the slot is already taken for the other desks, but the reports don't show the booking yet.
+// Reports read the list, the AppointmentIndex and the SlotCalendar without any lock.
+public final class BookingService {
+	private final SlotCalendar calendar;
+	private final AppointmentJournal journal;
+
+	private final LongAdder booked = new LongAdder();
+	private final LongAdder conflicts = new LongAdder();
+
+	// The journal adds the bookings to the appointments list it was opened with, the same one the calendar follows
+	public BookingService(SlotCalendar calendar, AppointmentJournal journal) {
+		this.calendar = calendar;
+		this.journal = journal;
+	}
+
+	// Returns false, and books nothing, if the medic already has that hour. If the appointment can't be written to disk it throws the IOException,
+	// and the appointment is neither in the agenda nor in the calendar.
+	public boolean book(Paciente patient, Medico medic, int month, int day, int hour) throws IOException {
+		if (!calendar.reserve(medic.getCedula(), month, day, hour)) {
+			conflicts.increment();
+			return false;
+		}
+
+		Consulta appointment = new Consulta(patient, medic, month, day, hour);
+		try {
+			awaitDurable(journal.append(appointment));
+		} catch (IOException e) {
+			calendar.release(medic.getCedula(), month, day, hour);
+			throw e;
+		}
+
+		booked.increment();
+		return true;
+	}
+
+	// An interrupt doesn't end the wait (it is kept for later): the record is already queued, and giving up would leave a booking in the journal and the agenda with its slot given back
+	private void awaitDurable(long ticket) throws IOException {
+		boolean interrupted = false;
+		try {
+			while (true) {
+				try {
+					journal.awaitDurable(ticket);
+					return;
+				} catch (InterruptedIOException e) {
+					interrupted = Thread.interrupted() || interrupted;
+				}
+			}
+		} finally {
+			if (interrupted) Thread.currentThread().interrupt();
+		}
+	}
+
+	public SlotCalendar calendar() {
+		return calendar;
+	}
+
+	// Bookings made through this service
+	public long booked() {
+		return booked.sum();
+	}
+
+	// Bookings refused because the slot was already taken
+	public long conflicts() {
+		return conflicts.sum();
+	}
+}
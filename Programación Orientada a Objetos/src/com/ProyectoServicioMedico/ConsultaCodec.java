@@ -0,0 +1,174 @@
+package com.ProyectoServicioMedico;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Hand-written binary format for Consultas.dat. Java serialization wrote its own copy of every Paciente and Medico the appointments point to (apart from the ones in Pacientes.dat and Medicos.dat), plus class descriptors and object handles, and read it all back through reflection.
+// Here an appointment is only references to the medics and patients tables (Medicos.dat and Pacientes.dat) and its date:
+//	header:	magic (int), number of appointments (long) and journal mark (long): the appointments saved in Consultas.journal before that record number are already in this file (see AppointmentJournal)
+//	record:	expediente (int), cedula (int) and the date packed in a short: mes in bits 10-13, dia in bits 5-9 and hora in bits 0-4
+// Every record has the same size, so record i always starts at HEADER + i * RECORD.
+// When decoding, the references are resolved against the tables, so every appointment of a patient shares the same Paciente object.
+// A Consultas.dat still in the old format (it starts with 0xACED, the Java serialization magic number) is read with ObjectInputStream, and the next save writes it in the new format.
+public final class ConsultaCodec {
+	static final int MAGIC = 0x43534331; // "CSC1"
+	static final int HEADER = Integer.BYTES + 2 * Long.BYTES;
+	static final int RECORD = 2 * Integer.BYTES + Short.BYTES;
+	private static final int CHUNK = 64 * 1024; // records per write
+
+	private final Map<Integer, Medico> medicsById = new HashMap<>();
+	private final Map<Integer, Paciente> patientsById = new HashMap<>();
+
+	// What a Consultas.dat holds: its appointments (a list that can grow, and be shared between threads) and how much of the journal they already include
+	public record Snapshot(List<Consulta> appointments, long journalMark) {
+		public static Snapshot empty() {
+			return new Snapshot(new MappedAppointments(), 0);
+		}
+	}
+
+	public ConsultaCodec(List<Medico> medics, List<Paciente> patients) {
+		for (Medico medic : medics) medicsById.put(medic.getCedula(), medic);
+		for (Paciente patient : patients) patientsById.put(patient.getExpediente(), patient);
+	}
+
+	// A Consultas.dat in this format is not loaded: its appointments are a MappedAppointments over the file, so this takes the same time for any number of appointments
+	public Snapshot read(Path file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			ByteBuffer header = readHeader(channel, file);
+			if (header == null) return readLegacy(file);
+
+			return new Snapshot(new MappedAppointments(this, channel, header.getLong(Integer.BYTES)), header.getLong(Integer.BYTES + Long.BYTES));
+		}
+	}
+
+	// Replaces file with a copy of its appointments followed by the records (RECORD bytes each, from the journal and numbered from firstNumber) that it doesn't include yet.
+	// The appointments already in file are copied as bytes, without decoding them, so only the new records cost anything besides the copy.
+	public void append(Path file, ByteBuffer records, long firstNumber) throws IOException {
+		if (Files.exists(file)) {
+			try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+				if (readHeader(channel, file) == null) {
+					Snapshot legacy = readLegacy(file); // converted first, so that its records can be copied below
+					write(file, legacy.appointments(), legacy.journalMark());
+				}
+			}
+		}
+
+		Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+		try (FileChannel created = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+				FileChannel old = Files.exists(file) ? FileChannel.open(file, StandardOpenOption.READ) : null) {
+			long count = 0;
+			long journalMark = firstNumber;
+			if (old != null) {
+				ByteBuffer header = readHeader(old, file);
+				count = header.getLong(Integer.BYTES);
+				journalMark = Math.max(firstNumber, header.getLong(Integer.BYTES + Long.BYTES));
+			}
+
+			// Records below the mark of file are already in it
+			records = records.duplicate();
+			long included = Math.min(records.remaining() / RECORD, journalMark - firstNumber);
+			records.position(records.position() + (int) included * RECORD);
+			long extra = records.remaining() / RECORD;
+
+			ByteBuffer header = ByteBuffer.allocate(HEADER).putInt(MAGIC).putLong(count + extra).putLong(journalMark + extra);
+			writeFully(created, header);
+
+			for (long copied = 0; copied < count * RECORD; ) {
+				copied += old.transferTo(HEADER + copied, count * RECORD - copied, created);
+			}
+			while (records.hasRemaining()) created.write(records);
+			created.force(true);
+		}
+
+		Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	// Writes to a temporary file first and then moves it over file, so a failed write never leaves file half written
+	public void write(Path file, List<Consulta> appointments, long journalMark) throws IOException {
+		Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+
+		try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+			ByteBuffer chunk = ByteBuffer.allocate(Math.max(HEADER, CHUNK * RECORD));
+			chunk.putInt(MAGIC).putLong(appointments.size()).putLong(journalMark);
+
+			for (Consulta appointment : appointments) {
+				if (chunk.remaining() < RECORD) writeFully(channel, chunk);
+				encode(appointment, chunk);
+			}
+			writeFully(channel, chunk);
+			channel.force(true);
+		}
+
+		Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	// Puts the RECORD bytes of the appointment at the buffer position
+	static void encode(Consulta appointment, ByteBuffer buffer) {
+		buffer.putInt(appointment.getPaciente().getExpediente());
+		buffer.putInt(appointment.getMedico().getCedula());
+		buffer.putShort((short) ((appointment.getMes() << 10) | (appointment.getDia() << 5) | appointment.getHora()));
+	}
+
+	// The appointment whose record starts at offset. A medic or a patient that is not in the tables anymore gets a stand-in with only its id.
+	Consulta decode(ByteBuffer buffer, int offset) {
+		int expediente = buffer.getInt(offset);
+		int cedula = buffer.getInt(offset + Integer.BYTES);
+		Paciente patient = patientsById.get(expediente);
+		Medico medic = medicsById.get(cedula);
+		if (patient == null) patient = new Paciente(expediente, "(paciente no registrado)", "", 0, 0, 0);
+		if (medic == null) medic = new Medico(cedula, "(médico no registrado)");
+
+		int date = buffer.getShort(offset + 2 * Integer.BYTES);
+		return new Consulta(patient, medic, (date >>> 10) & 0xF, (date >>> 5) & 0x1F, date & 0x1F);
+	}
+
+	@SuppressWarnings("unchecked")
+	private Snapshot readLegacy(Path file) throws IOException {
+		List<Consulta> legacy;
+		try (InputStream in = new BufferedInputStream(Files.newInputStream(file)); ObjectInputStream ois = new ObjectInputStream(in)) {
+			legacy = (ArrayList<Consulta>) ois.readObject();
+		} catch (ClassNotFoundException | ClassCastException e) {
+			throw new IOException("El archivo " + file + " parece estar corrupto.", e);
+		}
+
+		// Point every appointment to the shared medic and patient from the tables; the ones that are not registered anymore keep their own copy
+		List<Consulta> appointments = new MappedAppointments();
+		for (Consulta appointment : legacy) {
+			Paciente patient = patientsById.getOrDefault(appointment.getPaciente().getExpediente(), appointment.getPaciente());
+			Medico medic = medicsById.getOrDefault(appointment.getMedico().getCedula(), appointment.getMedico());
+			appointments.add(new Consulta(patient, medic, appointment.getMes(), appointment.getDia(), appointment.getHora()));
+		}
+		return new Snapshot(appointments, appointments.size()); // before the new format, journals started right after the last appointment of the snapshot
+	}
+
+	// The header of a file in this format, or null if the file is in the Java serialization format
+	private static ByteBuffer readHeader(FileChannel channel, Path file) throws IOException {
+		ByteBuffer header = ByteBuffer.allocate(HEADER);
+		while (header.hasRemaining() && channel.read(header, header.position()) > 0) { }
+
+		if (header.position() >= 2 && (header.getShort(0) & 0xFFFF) == 0xACED) return null;
+		if (header.hasRemaining() || header.getInt(0) != MAGIC) throw new IOException("El archivo " + file + " no tiene un formato de consultas conocido.");
+
+		long count = header.getLong(Integer.BYTES);
+		if (count < 0 || count > (channel.size() - HEADER) / RECORD) throw new IOException("El archivo " + file + " está incompleto: dice tener " + count + " consultas.");
+		return header;
+	}
+
+	private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining()) channel.write(buffer);
+		buffer.clear();
+	}
+}
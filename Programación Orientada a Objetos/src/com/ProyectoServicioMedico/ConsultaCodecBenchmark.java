@@ -0,0 +1,95 @@
+package com.ProyectoServicioMedico;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// Compares the Java serialization Consultas.dat against the ConsultaCodec one: file size, time to write and time to load.
+// Usage: java com.ProyectoServicioMedico.ConsultaCodecBenchmark [appointments] (1000000 by default)
+// The files go to a temporary directory that is deleted at the end. Every time is the best of ROUNDS rounds, and the loads include resolving the references against the tables.
+// ConsultaCodec.read only maps the file, so its load is measured twice: opening it, and opening it and then decoding every appointment.
+public class ConsultaCodecBenchmark {
+	private static final int ROUNDS = 3;
+
+	public static void main(String[] args) throws Exception {
+		int count = (args.length > 0) ? Integer.parseInt(args[0]) : 1_000_000;
+
+		List<Medico> medics = new ArrayList<>();
+		for (int i = 1; i <= 50; i++) medics.add(new Medico(1000 + i, "Médico " + i));
+		List<Paciente> patients = new ArrayList<>();
+		for (int i = 1; i <= 2000; i++) patients.add(new Paciente(i, "Paciente " + i, "5550000000", 30, 70, 1.70));
+
+		Random random = new Random(42);
+		List<Consulta> appointments = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			appointments.add(new Consulta(patients.get(random.nextInt(patients.size())), medics.get(random.nextInt(medics.size())), 1 + random.nextInt(12), 1 + random.nextInt(28), 1 + random.nextInt(23)));
+		}
+
+		ConsultaCodec codec = new ConsultaCodec(medics, patients);
+		Path directory = Files.createTempDirectory("consultas");
+		Path legacy = directory.resolve("legacy.dat");
+		Path compact = directory.resolve("compact.dat");
+
+		try {
+			long legacyWrite = best(() -> {
+				try (ObjectOutputStream oos = new ObjectOutputStream(new BufferedOutputStream(Files.newOutputStream(legacy)))) {
+					oos.writeObject(appointments);
+				}
+			});
+			long compactWrite = best(() -> codec.write(compact, appointments, 0));
+
+			long legacyLoad = best(() -> {
+				try (ObjectInputStream ois = new ObjectInputStream(new BufferedInputStream(Files.newInputStream(legacy)))) {
+					check(((List<?>) ois.readObject()).size(), count);
+				}
+			});
+			long legacyConvert = best(() -> check(codec.read(legacy).appointments().size(), count)); // the same load, plus pointing the appointments to the tables
+			long compactOpen = best(() -> check(codec.read(compact).appointments().size(), count));
+			long compactLoad = best(() -> {
+				int decoded = 0;
+				for (Consulta appointment : codec.read(compact).appointments()) {
+					if (appointment.getMes() > 0) decoded++;
+				}
+				check(decoded, count);
+			});
+
+			System.out.printf("%,d consultas%n", count);
+			System.out.printf("%-24s %14s %12s %12s%n", "", "tamaño", "escritura", "carga");
+			System.out.printf("%-24s %,12d B %9.1f ms %9.1f ms%n", "serialización de Java", Files.size(legacy), legacyWrite / 1e6, legacyLoad / 1e6);
+			System.out.printf("%-24s %14s %12s %9.1f ms%n", "  (leída por el códec)", "", "", legacyConvert / 1e6);
+			System.out.printf("%-24s %,12d B %9.1f ms %9.1f ms%n", "ConsultaCodec", Files.size(compact), compactWrite / 1e6, compactLoad / 1e6);
+			System.out.printf("%-24s %14s %12s %9.3f ms%n", "  (solo abrir)", "", "", compactOpen / 1e6);
+			System.out.printf("%-24s %13.1fx %11.1fx %11.1fx%n", "mejora", (double) Files.size(legacy) / Files.size(compact), (double) legacyWrite / compactWrite, (double) legacyLoad / compactLoad);
+		} finally {
+			Files.deleteIfExists(legacy);
+			Files.deleteIfExists(compact);
+			Files.deleteIfExists(directory);
+		}
+	}
+
+	private interface Task {
+		void run() throws Exception;
+	}
+
+	private static long best(Task task) throws Exception {
+		long best = Long.MAX_VALUE;
+		for (int i = 0; i < ROUNDS; i++) {
+			System.gc();
+			long start = System.nanoTime();
+			task.run();
+			best = Math.min(best, System.nanoTime() - start);
+		}
+		return best;
+	}
+
+	private static void check(int actual, int expected) throws IOException {
+		if (actual != expected) throw new IOException("Se esperaban " + expected + " consultas y se leyeron " + actual + ".");
+	}
+}
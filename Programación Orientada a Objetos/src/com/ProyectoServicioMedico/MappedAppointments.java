@@ -0,0 +1,80 @@
+package com.ProyectoServicioMedico;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+// The appointments of a Consultas.dat in the ConsultaCodec format, seen as a list without loading them.
+// The records are memory-mapped, so opening the list costs the same for ten appointments as for ten million, and get(i) decodes record i only when it is asked for (a new Consulta every time, nothing is cached).
+// Appointments added afterwards (the journal replay and the new ones) live in memory after the mapped ones. The list only grows at the end; it can't remove or replace appointments.
+// The mapping keeps reading the file that was opened, even after a compaction moves a new Consultas.dat over it.
+//
+// It can be shared between threads: add() is synchronized, and get() and size() take no lock. The added appointments go in fixed-size chunks that never move, and size is only raised (a volatile write) after the appointment is in its chunk, so whoever sees the new size also sees the appointment.
+public final class MappedAppointments extends AbstractList<Consulta> implements RandomAccess {
+	private static final int SEGMENT_RECORDS = (1 << 30) / ConsultaCodec.RECORD; // a MappedByteBuffer can't pass 2 GB, so the file is mapped in segments of this many records
+	private static final int CHUNK_BITS = 10;
+	private static final int CHUNK = 1 << CHUNK_BITS; // added appointments per chunk
+
+	private final ConsultaCodec codec;
+	private final ByteBuffer[] segments;
+	private final int stored;
+
+	private volatile Consulta[][] chunks = new Consulta[4][];
+	private volatile int size;
+
+	// A list with nothing mapped, for an agenda that is not in a Consultas.dat of this format
+	MappedAppointments() {
+		this.codec = null;
+		this.segments = new ByteBuffer[0];
+		this.stored = 0;
+	}
+
+	// Maps the count records that follow the header. The channel can be closed afterwards.
+	MappedAppointments(ConsultaCodec codec, FileChannel channel, long count) throws IOException {
+		if (count > Integer.MAX_VALUE) throw new IOException("No es posible abrir más de " + Integer.MAX_VALUE + " consultas.");
+
+		this.codec = codec;
+		this.stored = (int) count;
+		this.size = stored;
+		this.segments = new ByteBuffer[(stored + SEGMENT_RECORDS - 1) / SEGMENT_RECORDS];
+
+		for (int i = 0; i < segments.length; i++) {
+			long first = (long) i * SEGMENT_RECORDS;
+			long records = Math.min(SEGMENT_RECORDS, stored - first);
+			segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, ConsultaCodec.HEADER + first * ConsultaCodec.RECORD, records * ConsultaCodec.RECORD);
+		}
+	}
+
+	@Override
+	public Consulta get(int index) {
+		if (index < 0 || index >= size) throw new IndexOutOfBoundsException("Índice " + index + " fuera de la lista de " + size + " consultas.");
+
+		if (index >= stored) {
+			int added = index - stored;
+			return chunks[added >>> CHUNK_BITS][added & (CHUNK - 1)];
+		}
+		return codec.decode(segments[index / SEGMENT_RECORDS], (index % SEGMENT_RECORDS) * ConsultaCodec.RECORD);
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public synchronized boolean add(Consulta appointment) {
+		int added = size - stored;
+		int chunk = added >>> CHUNK_BITS;
+
+		if (chunk == chunks.length) chunks = Arrays.copyOf(chunks, chunks.length * 2);
+		if (chunks[chunk] == null) chunks[chunk] = new Consulta[CHUNK];
+		chunks[chunk][added & (CHUNK - 1)] = appointment;
+
+		modCount++;
+		size = size + 1; // publishes the appointment
+		return true;
+	}
+}
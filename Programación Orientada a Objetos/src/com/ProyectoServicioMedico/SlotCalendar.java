@@ -0,0 +1,164 @@
+package com.ProyectoServicioMedico;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// Which hours every medic already has taken, as one bitset per medic with a bit per hourly slot of the year: 12 months x 31 days x 24 hours, so slot = ((mes - 1) * 31 + (dia - 1)) * 24 + hora.
+// That is 8928 bits (140 longs, about 1 KB) per medic, whatever the number of appointments, and checking or taking a slot is reading or setting one bit.
+// Slots that the agenda can't book (hour 0, February 29 to 31, the 31st of the 30-day months) are never free, so the searches skip them.
+// Like AppointmentIndex, the calendar follows the appointments list: every call first marks the appointments added to the list since the previous call, so the calendar costs nothing until the first booking.
+// The appointments stored before the agenda checked for conflicts can share a slot; they just leave it taken.
+//
+// It can be shared between threads (see BookingService) without locks: every bitset is an AtomicLongArray, and reserve() sets its bit with a compare-and-set on the word, so of two desks that want the same slot exactly one gets it.
+// A compare-and-set also fails when another bit of the same word (another hour of the same medic, close in time) changed in between; then it is retried, and casRetries() counts those retries.
+// Catching up with the list takes a lock, but only while there is something to catch up.
+public final class SlotCalendar {
+	static final int MONTHS = 12;
+	static final int DAYS = 31;
+	static final int HOURS = 24;
+	static final int SLOTS = MONTHS * DAYS * HOURS;
+	private static final int WORDS = (SLOTS + Long.SIZE - 1) / Long.SIZE;
+
+	// Bit set for every slot that can be booked
+	private static final long[] BOOKABLE = new long[WORDS];
+	static {
+		for (int month = 1; month <= MONTHS; month++) {
+			for (int day = 1; day <= daysIn(month); day++) {
+				for (int hour = 1; hour < HOURS; hour++) {
+					int slot = slot(month, day, hour);
+					BOOKABLE[slot >>> 6] |= 1L << slot;
+				}
+			}
+		}
+	}
+
+	private final List<Consulta> appointments;
+	private volatile int marked; // appointments [0, marked) are already in the bitsets
+	private final int[] medics; // cedulas, in the order of the medics list
+	private final Map<Integer, AtomicLongArray> taken = new ConcurrentHashMap<>();
+	private final LongAdder casRetries = new LongAdder();
+
+	// A free slot found by the searches
+	public record Slot(int cedula, int month, int day, int hour) { }
+
+	public SlotCalendar(List<Consulta> appointments, List<Medico> medics) {
+		this.appointments = appointments;
+		this.medics = new int[medics.size()];
+		for (int i = 0; i < this.medics.length; i++) {
+			this.medics[i] = medics.get(i).getCedula();
+			taken.put(this.medics[i], new AtomicLongArray(WORDS));
+		}
+	}
+
+	// Takes the slot if it is free. Returns false, and changes nothing, if the medic already has it or it can't be booked.
+	public boolean reserve(int cedula, int month, int day, int hour) {
+		catchUp();
+		int slot = slot(month, day, hour);
+		AtomicLongArray bits = bits(cedula);
+		int word = slot >>> 6;
+		long bit = 1L << slot;
+
+		while (true) {
+			long current = bits.get(word);
+			if ((BOOKABLE[word] & ~current & bit) == 0) return false;
+			if (bits.compareAndSet(word, current, current | bit)) return true;
+			casRetries.increment();
+		}
+	}
+
+	// Gives back a slot taken with reserve() whose appointment couldn't be stored (see BookingService)
+	public void release(int cedula, int month, int day, int hour) {
+		int slot = slot(month, day, hour);
+		bits(cedula).getAndUpdate(slot >>> 6, (word) -> word & ~(1L << slot));
+	}
+
+	// How many times reserve() had to retry its compare-and-set because the word changed under it
+	public long casRetries() {
+		return casRetries.sum();
+	}
+
+	// The first free slot of the medic at or after the given date and hour, or null if there is none left in the year
+	public Slot nextFree(int cedula, int month, int day, int hour) {
+		catchUp();
+		int slot = nextFree(bits(cedula), slot(month, day, hour));
+		return (slot < 0) ? null : toSlot(cedula, slot);
+	}
+
+	// The first slot at or after the given date and hour in which any medic is free. If several are free then, the first one in the medics list gets it.
+	public Slot nextFreeAnyMedic(int month, int day, int hour) {
+		catchUp();
+		int from = slot(month, day, hour);
+		int best = -1;
+		int bestMedic = 0;
+
+		for (int cedula : medics) {
+			int slot = nextFree(taken.get(cedula), from);
+			if (slot >= 0 && (best < 0 || slot < best)) {
+				best = slot;
+				bestMedic = cedula;
+				if (best == from) break; // nothing can be earlier
+			}
+		}
+		return (best < 0) ? null : toSlot(bestMedic, best);
+	}
+
+	static boolean inCalendar(int month, int day, int hour) {
+		return month >= 1 && month <= MONTHS && day >= 1 && day <= DAYS && hour >= 0 && hour < HOURS;
+	}
+
+	static int slot(int month, int day, int hour) {
+		if (!inCalendar(month, day, hour)) throw new IllegalArgumentException("Fecha fuera del calendario: " + day + "/" + month + " " + hour + ":00");
+		return ((month - 1) * DAYS + (day - 1)) * HOURS + hour;
+	}
+
+	// Same limits as the agenda: February always has 28 days
+	static int daysIn(int month) {
+		return switch (month) {
+			case 2 -> 28;
+			case 4, 6, 9, 11 -> 30;
+			default -> 31;
+		};
+	}
+
+	// Word by word: the free bits of a word are the bookable ones that are not taken, and the lowest of them is the first free slot
+	private static int nextFree(AtomicLongArray bits, int from) {
+		int word = from >>> 6;
+		long free = BOOKABLE[word] & ~bits.get(word) & (-1L << from); // the shift only uses the low 6 bits of from
+		while (free == 0) {
+			if (++word == WORDS) return -1;
+			free = BOOKABLE[word] & ~bits.get(word);
+		}
+		return word * Long.SIZE + Long.numberOfTrailingZeros(free);
+	}
+
+	private static Slot toSlot(int cedula, int slot) {
+		int hour = slot % HOURS;
+		int day = slot / HOURS % DAYS + 1;
+		int month = slot / HOURS / DAYS + 1;
+		return new Slot(cedula, month, day, hour);
+	}
+
+	private AtomicLongArray bits(int cedula) {
+		return taken.computeIfAbsent(cedula, (key) -> new AtomicLongArray(WORDS)); // a medic that is not in the list anymore still keeps their appointments
+	}
+
+	// The appointments that went through reserve() already have their bit, so marking them again changes nothing
+	private void catchUp() {
+		if (marked >= appointments.size()) return;
+
+		synchronized (this) {
+			int size = appointments.size();
+			for (int i = marked; i < size; i++) {
+				Consulta appointment = appointments.get(i);
+				if (!inCalendar(appointment.getMes(), appointment.getDia(), appointment.getHora())) continue; // a damaged record can't take a slot
+
+				int slot = slot(appointment.getMes(), appointment.getDia(), appointment.getHora());
+				bits(appointment.getMedico().getCedula()).getAndUpdate(slot >>> 6, (word) -> word | (1L << slot));
+			}
+			marked = size;
+		}
+	}
+}